@@ -2,22 +2,56 @@ package com.example.etienneguerlain.tictactoe;
 
 import android.app.AlertDialog;
 import android.content.DialogInterface;
-import android.graphics.Color;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
 import android.os.Handler;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.GridLayout;
 import android.widget.TextView;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 // This activity launches a new game and handles user interactions with the game engine (a TicTacToe instance)
 public class GameActivity extends AppCompatActivity {
 
 
+    // Size of the grid, and number of aligned marks needed to win
+    static final int BOARD_WIDTH = 3;
+    static final int BOARD_HEIGHT = 3;
+    static final int WIN_LENGTH = 3;
+
+    // Size of a cell button (in dp) and space between two cells buttons, used on the classic 3x3 grid
+    // On bigger grids, cells are shrunk so that the grid fits in the screen width
+    static final int CELL_SIZE_DP = 90;
+    static final int CELL_MARGIN_DP = 5;
+
+    // Minimum time (in milliseconds) between the moment CPU has to play and the moment its move is displayed
+    // It makes the game more natural, since the CPU doesn't play directly after user played
+    static final long CPU_REVEAL_TIME = 1000;
+
+    // Extras of the intent launching this activity, to play against a remote player through a GameServer
+    // instead of the CPU (host name and port of the server)
+    static final String EXTRA_REMOTE_HOST = "remoteHost";
+    static final String EXTRA_REMOTE_PORT = "remotePort";
+
+
     // We keep players (user and CPU) scores. When a game is finished, they are updated accordingly to the game state
+    // They start from the lifetime totals of the match history, so that they are kept when user quits the game activity
     int _playerScore;
     int _cpuScore;
 
@@ -32,8 +66,57 @@ public class GameActivity extends AppCompatActivity {
     // Game engine instance
     TicTacToe _ticTacToeGame;
 
-    // Grid of buttons, that displays the game grid and allows user to play
+    // Table of the best moves of the classic 3x3 game, read once from the assets and shared by all the games
+    static PerfectPlayTable _perfectPlayTable;
+
+    // Random number generator used for all the CPU decisions
+    Random _random;
+
+    // CPU players backing each difficulty level (indexed by Settings.MODES ordinal). They are kept between games
+    CpuPlayer[] _cpuPlayers;
+
+    // Grid of buttons, that displays the game grid and allows user to play, and size of a cell button (in pixels)
     Button[][] _grid;
+    int _cellSize;
+
+    // Bitmaps of an empty cell, a cell played by user and a cell played by CPU, with the theme palette and
+    // the mode they were taken for (the mode matters for the Christmas easter egg)
+    Bitmap[] _symbols;
+    ThemePalette _symbolsPalette;
+    Settings.MODES _symbolsMode;
+
+    // Version of the game grid when it was last drawn, and buffer receiving the cells that changed since
+    // Only these cells buttons are updated when the grid is drawn
+    int _drawnVersion;
+    int[] _changedCells;
+
+    // Tells if the buttons were all disabled since the grid was last drawn
+    boolean _buttonsLocked;
+
+    // History of all the games played on the device (null until it is opened, or if it can't be)
+    // It is opened, written and closed on its own background thread, so that the UI thread never waits for the disk:
+    // it is only used from this thread
+    MatchHistory _matchHistory;
+    ExecutorService _historyExecutor;
+
+    // CPU moves are computed on this background thread, so that the searches never block the interface
+    ExecutorService _cpuExecutor;
+
+    // Handler of the UI thread, to which computed CPU moves are delivered
+    Handler _handler;
+
+    // Computation of the pending CPU move (null if none), and its generation
+    // The generation is incremented each time a CPU move is requested or cancelled, so that a move computed
+    // for an older position is never played
+    Future<?> _cpuMoveTask;
+    int _cpuMoveGeneration;
+
+    // Host name of the server when playing against a remote player (null when playing against the CPU), and its port
+    String _remoteHost;
+    int _remotePort;
+
+    // Connection to the remote player, opened on the background thread when the first game starts
+    volatile RemotePlayer _remotePlayer;
 
 
     @Override
@@ -47,15 +130,36 @@ public class GameActivity extends AppCompatActivity {
         // We retrieve the elements of the interface from the loaded layout
         initializeUIElements();
 
+        // Now that the size of the cells is known, the pictures of the current theme are decoded in the background
+        // while the rest of the game is set up
+        preloadSymbols(this);
+
         // For each button of the grid, we create an onClickListener
         bindButtonsAction();
 
 
-        // We set the scores to 0 (they are reset when user quits the game activity)
-        _playerScore = _cpuScore = 0;
+        // Handler of the UI thread, to which the background threads deliver their results
+        _handler = new Handler();
+
+        // We open the match history in the background, and add its lifetime totals to the scores once it is open
+        loadMatchHistory();
+
+        // Creation of a brand new game engine (it is reset each time user wants to play again)
+        _ticTacToeGame = new TicTacToe(BOARD_WIDTH, BOARD_HEIGHT, WIN_LENGTH);
 
-        // Creation of a brand new game engine (a new one is created each time user wants to play again)
-        _ticTacToeGame = new TicTacToe();
+        _random = new Random();
+
+        // We read the perfect play table, if it has not been read yet
+        loadPerfectPlayTable();
+
+        // We create the CPU players, and the thread on which they compute their moves
+        createCpuPlayers();
+
+        _cpuExecutor = Executors.newSingleThreadExecutor();
+
+        // The opponent may be a remote player instead of the CPU
+        _remoteHost = getIntent().getStringExtra(EXTRA_REMOTE_HOST);
+        _remotePort = getIntent().getIntExtra(EXTRA_REMOTE_PORT, 7777);
 
 
         // We set the background color as defined in the currently selected theme
@@ -74,6 +178,66 @@ public class GameActivity extends AppCompatActivity {
     }
 
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+
+        // The process may be killed once the activity is in the background: the last games are written now,
+        // without waiting for them to be written
+        _historyExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(_matchHistory != null){
+                    _matchHistory.startFlush();
+                }
+            }
+        });
+    }
+
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // The pending CPU move is cancelled, and the threads of the tree searches are stopped
+        cancelCpuMove();
+        _cpuExecutor.shutdownNow();
+
+        for(CpuPlayer cpuPlayer : _cpuPlayers){
+            CpuPlayers.release(cpuPlayer);
+        }
+
+        // The remote player is told we left by the server, once the connection is closed
+        if(_remotePlayer != null){
+            try{
+                _remotePlayer.close();
+            }catch(IOException e){
+                Log.e("GameActivity", "Unable to close the connection to the remote player", e);
+            }
+        }
+
+        // Other activities may still hold the match history: it is only closed by the last one
+        // The thread of the history stops once the games appended before are written
+        _historyExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(_matchHistory != null){
+                    try{
+                        _matchHistory.close();
+                    }catch(IOException e){
+                        Log.e("GameActivity", "Unable to close the match history", e);
+                    }
+                }
+            }
+        });
+        _historyExecutor.shutdown();
+
+        if(Metrics.isEnabled()){
+            Log.d("GameActivity", "Metrics:\n" + Metrics.snapshot());
+        }
+    }
+
+
     // This method retrieve the elements of the interface from the loaded layout
     private void initializeUIElements(){
 
@@ -85,22 +249,51 @@ public class GameActivity extends AppCompatActivity {
         _cpuNameLabel = findViewById(R.id.cpuName);
 
 
-        // We initialize the grid...
-        _grid = new Button[3][3];
+        // We retrieve the layout that holds the grid, and give it the size of the grid...
+        GridLayout gridLayout = findViewById(R.id.grid);
+        gridLayout.setRowCount(BOARD_HEIGHT);
+        gridLayout.setColumnCount(BOARD_WIDTH);
+
+        // ... we compute the size of a cell button, so that the whole grid fits in the screen width...
+        int margin = (int) (CELL_MARGIN_DP * getResources().getDisplayMetrics().density);
+        _cellSize = getCellSize(this);
+
+        // ... and then fill it with newly created buttons
+        _grid = new Button[BOARD_HEIGHT][BOARD_WIDTH];
+
+        for(int i = 0; i < BOARD_HEIGHT; i++){
+            for(int j = 0; j < BOARD_WIDTH; j++){
+                _grid[i][j] = new Button(this);
+
+                GridLayout.LayoutParams params = new GridLayout.LayoutParams(GridLayout.spec(i), GridLayout.spec(j));
+                params.width = _cellSize;
+                params.height = _cellSize;
+                params.setMargins(margin, margin, margin, margin);
+
+                gridLayout.addView(_grid[i][j], params);
+            }
+        }
+
+    }
+
+
+    // Size of a cell button (in pixels), so that the whole grid fits in the screen width
+    static int getCellSize(Context context){
+        float density = context.getResources().getDisplayMetrics().density;
+        int margin = (int) (CELL_MARGIN_DP * density);
 
-        // ... and then fill it with buttons from the loaded layout
-        _grid[0][0] = findViewById(R.id.cell0_0);
-        _grid[0][1] = findViewById(R.id.cell0_1);
-        _grid[0][2] = findViewById(R.id.cell0_2);
+        return Math.min((int) (CELL_SIZE_DP * density),
+                context.getResources().getDisplayMetrics().widthPixels / BOARD_WIDTH - 2 * margin);
+    }
 
-        _grid[1][0] = findViewById(R.id.cell1_0);
-        _grid[1][1] = findViewById(R.id.cell1_1);
-        _grid[1][2] = findViewById(R.id.cell1_2);
 
-        _grid[2][0] = findViewById(R.id.cell2_0);
-        _grid[2][1] = findViewById(R.id.cell2_1);
-        _grid[2][2] = findViewById(R.id.cell2_2);
+    // Decodes in the background the bitmaps of the cells pictures of the current theme and mode,
+    // at the size of the cells (it is also called by the settings activity when the theme changes)
+    static void preloadSymbols(Context context){
+        ThemePalette palette = ThemePalette.getInstance(context);
 
+        SymbolBitmapCache.preload(context.getResources(), getCellSize(context),
+                palette.getEmptySymbol(), palette.getCrossSymbol(), palette.getCircleSymbol(Settings.getInstance().getMode()));
     }
 
 
@@ -108,11 +301,11 @@ public class GameActivity extends AppCompatActivity {
     private void bindButtonsAction() {
 
         // For each line of the grid...
-        for (int i = 0; i < 3; i++) {
+        for (int i = 0; i < BOARD_HEIGHT; i++) {
             final int line = i;
 
             // ... and for each cell of this line...
-            for (int j = 0; j < 3; j++) {
+            for (int j = 0; j < BOARD_WIDTH; j++) {
                 final int column = j;
 
                 // ... we set an OnClickListener
@@ -146,19 +339,7 @@ public class GameActivity extends AppCompatActivity {
 
         // Otherwise, if game state is always "PLAYING", then the CPU has to play
         if(_ticTacToeGame.getState() == TicTacToe.GAME_STATE.PLAYING){
-
-            // By using this runnable, it is possible to delay CPU action
-            // It makes the game more natural, since the CPU doesn't play directly after user played
-            Runnable r = new Runnable() {
-                @Override
-                public void run() {
-                    makeCpuPlay();
-                }
-            };
-
-            Handler h = new Handler();
-            h.postDelayed(r, 1000);
-
+            requestCpuMove();
         }
     }
 
@@ -166,11 +347,16 @@ public class GameActivity extends AppCompatActivity {
     // Disables all the buttons of the grid
     private void lockButtons(){
 
+        if(_buttonsLocked){
+            return;
+        }
+        _buttonsLocked = true;
+
         // For each line of the grid...
-        for(int i=0; i<3; i++){
+        for(int i=0; i<BOARD_HEIGHT; i++){
 
             // ... and for each cell in this line...
-            for(int j=0; j<3; j++){
+            for(int j=0; j<BOARD_WIDTH; j++){
 
                 // ... the cell button is disabled
                 _grid[i][j].setEnabled(false);
@@ -179,160 +365,180 @@ public class GameActivity extends AppCompatActivity {
     }
 
 
-    // CPU chooses randomly a cell and tries to play it
-    private void makeCpuPlayRandom(){
+    // Creates the CPU players of each difficulty level
+    private void createCpuPlayers(){
+        int processors = Runtime.getRuntime().availableProcessors();
 
-        // Boolean indicating if the last play was valid or not
-        boolean validPlay = false;
+        _cpuPlayers = new CpuPlayer[Settings.MODES.values().length];
 
-        // While the last play was invalid...
-        do{
-            // ... we pick up random line and column numbers...
-            Random myRandow = new Random();
-            int line = myRandow.nextInt(3);
-            int column = myRandow.nextInt(3);
+        for(Settings.MODES mode : Settings.MODES.values()){
+            _cpuPlayers[mode.ordinal()] = CpuPlayers.create(mode, _ticTacToeGame.getCellCount(), _perfectPlayTable, _random, processors);
+        }
+    }
 
-            // ... and ask the game engine to play the corresponding cell
-            TicTacToe.PLAY_RESULT result = _ticTacToeGame.playCell(line, column);
 
-            // Then we check the result of this play, to see if we have to try again with other line and column numbers
-            validPlay = (result == TicTacToe.PLAY_RESULT.OK);
-        } while(!validPlay);
+    // Asks the CPU player of the Mode selected in the Settings instance for its move
+    // The move is computed on the background thread, and played on the UI thread once computed
+    private void requestCpuMove(){
 
+        // Buttons are disabled while CPU is "thinking" to prevent user from playing
+        lockButtons();
 
-        // Once CPU has played, grid is refreshed
-        drawGrid();
-
-        // And the game state is checked to see if CPU won or if it is a tie
-        checkGameState();
-    }
+        final int generation = ++_cpuMoveGeneration;
+        final long requestTime = SystemClock.uptimeMillis();
 
+        // The CPU player works on a copy of the game, since the UI thread keeps using the game engine
+        final TicTacToe position = new TicTacToe(BOARD_WIDTH, BOARD_HEIGHT, WIN_LENGTH);
+        position.copyFrom(_ticTacToeGame);
 
+        // The opponent is the remote player if there is one (it is connected before the first move is requested)
+        final CpuPlayer cpuPlayer = (_remotePlayer != null) ? _remotePlayer : _cpuPlayers[Settings.getInstance().getMode().ordinal()];
 
-    // Make the CPU play according to the Mode selected in the Settings instance
-    private void makeCpuPlay(){
+        _cpuMoveTask = _cpuExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final int move;
 
-        // According to the Mode set in the settings...
-        switch (Settings.getInstance().getMode()){
-            case EASY:
-                // ... we play randomly if mode is EASY...
-                makeCpuPlayRandom();
-                break;
-            case NORMAL:
-                // ... or we "flip a coin" to play wisely or randomly if mode is "NORMAL"...
-                Random myRandom = new Random();
-                float myFloat = myRandom.nextFloat();
+                // Only the remote player may fail, when the connection is lost
+                try{
+                    move = cpuPlayer.chooseMove(position);
+                }catch(IllegalStateException e){
+                    postRemoteGameError(e);
+                    return;
+                }
 
-                if(myFloat < 0.5){
-                    makeCpuPlayClever();
-                }else{
-                    makeCpuPlayRandom();
+                // If the move was cancelled while computed, it is not delivered
+                if(Thread.currentThread().isInterrupted()){
+                    return;
                 }
-                break;
-            case IMPOSSIBLE:
-                // ... or we play wisely if mode is IMPOSSIBLE
-                makeCpuPlayClever();
-                break;
-        }
 
-    }
+                // The move is displayed at least CPU_REVEAL_TIME after it was requested, thinking time included
+                long thinkingTime = SystemClock.uptimeMillis() - requestTime;
 
+                _handler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        // A newer move was requested, or the game was left, in the meantime
+                        if(generation != _cpuMoveGeneration){
+                            return;
+                        }
 
-    // This method makes the CPU play wisely. I didn't implement the logic myself, a friend did it.
-    private void makeCpuPlayClever(){
-        boolean validPlay = false;
+                        _cpuMoveTask = null;
+                        playCpuMove(move);
+                    }
+                }, Math.max(0, CPU_REVEAL_TIME - thinkingTime));
+            }
+        });
+    }
 
-        // As long as the last play was invalid, we go through the same process
-        do{
-            int line = 99;
-            int column = 99;
-            int cas = 99;   // Will be 0, 1, 2, 10, 11, 12, 101 or 102
-            int letsWin = 0;
-            int blockPlayer = 0;
 
+    // Cancels the pending CPU move, whether it is being computed or waiting to be displayed
+    private void cancelCpuMove(){
+        _cpuMoveGeneration++;
 
-            //  We check if CPU is going to win (by adding cells value. The CPU cell value is 3)
+        if(_cpuMoveTask != null){
+            _cpuMoveTask.cancel(true);
+            _cpuMoveTask = null;
+        }
 
-            // we check the lines
-            for (int i=0; i<3; i++) {
-                if (_ticTacToeGame.getCell(i,0) + _ticTacToeGame.getCell(i,1) + _ticTacToeGame.getCell(i,2) == 6 ) { cas = i;letsWin = 1;}
-            }
+        _handler.removeCallbacksAndMessages(null);
+    }
 
-            // we check the columns
-            for (int i=0; i<3; i++) {
-                if (_ticTacToeGame.getCell(0,i) + _ticTacToeGame.getCell(1,i) + _ticTacToeGame.getCell(2,i) == 6 ) {cas = 10+i;letsWin = 1;}
-            }
 
-            //we check the diagonals
-            if (_ticTacToeGame.getCell(0,0) + _ticTacToeGame.getCell(1,1) + _ticTacToeGame.getCell(2,2) == 6 ){ cas = 101;letsWin = 1;}
-            if (_ticTacToeGame.getCell(2,0) + _ticTacToeGame.getCell(1,1) + _ticTacToeGame.getCell(0,2) == 6 ){ cas = 102;letsWin = 1;}
+    // Connects to the remote player if needed, and asks the server for a new game
+    // Once it is found, the remote player plays first or user is allowed to play, as told by the server
+    private void joinRemoteGame(){
 
+        // Cells buttons are disabled until the game starts
+        lockButtons();
 
+        final int generation = _cpuMoveGeneration;
 
-            //  If the CPU is not going to win, we check if the user is going to win (by adding cells value. The user cell value is 1)
+        _cpuExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final boolean remoteFirst;
 
-            if (letsWin == 0){
-                // Lines
-                for (int i=0; i<3; i++) {
-                    if (_ticTacToeGame.getCell(i,0) + _ticTacToeGame.getCell(i,1) + _ticTacToeGame.getCell(i,2) == 2 ) { cas = i; blockPlayer = 1;}
+                try{
+                    // A connection closed by a cancelled move can't be used anymore: a new one is opened
+                    if(_remotePlayer == null || !_remotePlayer.isOpen()){
+                        _remotePlayer = RemotePlayer.connect(new InetSocketAddress(_remoteHost, _remotePort));
+                    }
+                    remoteFirst = _remotePlayer.join(BOARD_WIDTH, BOARD_HEIGHT, WIN_LENGTH);
+                }catch(IOException e){
+                    postRemoteGameError(e);
+                    return;
                 }
 
-                // Columns
-                for (int i=0; i<3; i++) {
-                    if (_ticTacToeGame.getCell(0,i) + _ticTacToeGame.getCell(1,i) + _ticTacToeGame.getCell(2,i) == 2 ) {cas = 10+i;blockPlayer = 1;}
-                }
+                _handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(generation != _cpuMoveGeneration){
+                            return;
+                        }
+
+                        if(remoteFirst){
+                            _ticTacToeGame.setCurrentPlayer(TicTacToe.PLAYERS.B);
+                            requestCpuMove();
+                        }else{
+                            // Drawing the grid enables the empty cells again
+                            drawGrid();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
 
-                // Diagonals
-                if (_ticTacToeGame.getCell(0,0) + _ticTacToeGame.getCell(1,1) + _ticTacToeGame.getCell(2,2) == 2 ){ cas = 101;blockPlayer = 1;}
-                if (_ticTacToeGame.getCell(2,0) + _ticTacToeGame.getCell(1,1) + _ticTacToeGame.getCell(0,2) == 2 ){ cas = 102;blockPlayer = 1;}
+    // Sends the last move to the remote player, when it ended the game (the remote player didn't ask for it)
+    private void sendRemoteMoves(){
+        final TicTacToe position = new TicTacToe(BOARD_WIDTH, BOARD_HEIGHT, WIN_LENGTH);
+        position.copyFrom(_ticTacToeGame);
+
+        _cpuExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    _remotePlayer.sendMoves(position);
+                }catch(IOException e){
+                    Log.e("GameActivity", "Unable to send the last move to the remote player", e);
+                }
             }
+        });
+    }
+
 
+    // Tells user that the connection to the remote player was lost, and leaves the game
+    private void postRemoteGameError(final Exception error){
+        Log.e("GameActivity", "Remote game failed", error);
 
+        _handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if(isFinishing()){
+                    return;
+                }
 
-            // Now we now the situation, according to the cas value
-            // We retrieve the coordinates of the cell we have to play
-            if (cas == 0 | cas == 1 | cas == 2 ){
-                if (_ticTacToeGame.getCell(cas,0) == 0){ line = cas; column = 0  ;    }
-                if (_ticTacToeGame.getCell(cas,1) == 0){ line = cas; column = 1  ;    }
-                if (_ticTacToeGame.getCell(cas,2) == 0){ line = cas; column = 2  ;    } }
-
-            if (cas == 10 | cas == 11 | cas == 12 ){
-                if (_ticTacToeGame.getCell(0,(cas-10)) == 0){ line = 0; column = (cas-10)  ;    }
-                if (_ticTacToeGame.getCell(1,(cas-10)) == 0){ line = 1; column = (cas-10)  ;    }
-                if (_ticTacToeGame.getCell(2,(cas-10)) == 0){ line = 2; column = (cas-10)  ;    } }
-
-            if (cas == 101 ){
-             if (_ticTacToeGame.getCell(0,0) == 0){ line = 0; column = 0  ;    }
-             if (_ticTacToeGame.getCell(1,1) == 0){ line = 1; column = 1  ;    }
-             if (_ticTacToeGame.getCell(2,2) == 0){ line = 2; column = 2  ;    }   }
-
-            if (cas == 102 ){
-             if (_ticTacToeGame.getCell(2,0) == 0){ line = 2; column = 0  ;    }
-             if (_ticTacToeGame.getCell(1,1) == 0){ line = 1; column = 1  ;    }
-             if (_ticTacToeGame.getCell(0,2) == 0){ line = 0; column = 2  ;    }   }
-
-            // We want to play in the corners in priority
-            if (line == 99 && column == 99 ) {
-                if (_ticTacToeGame.getCell(0,0) == 1){ line = 2; column = 2  ; }
-                if (_ticTacToeGame.getCell(2,0) == 1){ line = 0; column = 2  ; }
-                if (_ticTacToeGame.getCell(0,2) == 1){ line = 2; column = 0  ; }
-                if (_ticTacToeGame.getCell(2,2) == 1){ line = 0; column = 0  ; }
-
-                // If no corner is available, we play somewhere else
-                if (_ticTacToeGame.getCell(1,0) == 0){ line = 1; column = 0  ; }
-                if (_ticTacToeGame.getCell(0,1) == 0){ line = 0; column = 1  ; }
-                if (_ticTacToeGame.getCell(1,2) == 0){ line = 1; column = 2  ; }
-                if (_ticTacToeGame.getCell(2,1) == 0){ line = 2; column = 1  ; }
-                if (_ticTacToeGame.getCell(1,1) == 0){ line = 1; column = 1  ; }
+                new AlertDialog.Builder(GameActivity.this).setCancelable(false)
+                        .setTitle("Connection lost")
+                        .setMessage("The game with the remote player can't go on.")
+                        .setPositiveButton("Leave", new DialogInterface.OnClickListener() {
+                            public void onClick(DialogInterface dialog, int id) {
+                                finish();
+                            }
+                        })
+                        .create().show();
             }
+        });
+    }
 
-            // We ask the game engine to play the designated cell...
-            TicTacToe.PLAY_RESULT result = _ticTacToeGame.playCell(line, column);
 
-            // ...and then check if it was a valid play
-            validPlay = (result == TicTacToe.PLAY_RESULT.OK);
+    // Plays the move computed by the CPU player
+    private void playCpuMove(int move){
 
-        } while(!validPlay);
+        // We ask the game engine to play the designated cell (it is always valid, there is no need to try again)
+        _ticTacToeGame.playCell(move / BOARD_WIDTH, move % BOARD_WIDTH);
 
 
         // Once CPU has played, the grid is refreshed...
@@ -343,6 +549,78 @@ public class GameActivity extends AppCompatActivity {
     }
 
 
+    // Reads the perfect play table from the application assets
+    // If it can't be read, the CPU will rely on the negamax solver instead
+    private void loadPerfectPlayTable(){
+
+        if(_perfectPlayTable != null){
+            return;
+        }
+
+        try{
+            InputStream input = getAssets().open(PerfectPlayTable.ASSET_NAME);
+
+            try{
+                _perfectPlayTable = PerfectPlayTable.read(input);
+            }finally{
+                input.close();
+            }
+        }catch(IOException e){
+            Log.e("GameActivity", "Unable to read the perfect play table", e);
+        }
+    }
+
+
+    // Opens the match history from the application files in the background (its index may have to be rebuilt from
+    // the whole log), and adds its lifetime totals to the scores once it is open
+    // Games finished meanwhile are counted in the scores, and appended once the history is open
+    // If it can't be opened, the scores start from 0 and the games are not recorded
+    private void loadMatchHistory(){
+        _playerScore = _cpuScore = 0;
+
+        final File directory = getFilesDir();
+        _historyExecutor = Executors.newSingleThreadExecutor();
+
+        _historyExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    _matchHistory = MatchHistory.open(directory);
+                }catch(IOException e){
+                    Log.e("GameActivity", "Unable to open the match history", e);
+                    return;
+                }
+
+                final long playerWins = _matchHistory.getCount(TicTacToe.GAME_STATE.A_WON);
+                final long cpuWins = _matchHistory.getCount(TicTacToe.GAME_STATE.B_WON);
+
+                _handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        _playerScore += (int) playerWins;
+                        _cpuScore += (int) cpuWins;
+                        refreshScores();
+                    }
+                });
+            }
+        });
+    }
+
+
+    // Appends the finished game to the match history, on the thread of the history
+    private void recordGame(){
+        final long record = GameRecord.of(_ticTacToeGame);
+
+        _historyExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(_matchHistory != null){
+                    _matchHistory.append(record);
+                }
+            }
+        });
+    }
+
 
     // If the game is finished, this method displays the result and asks user what to do next
     private void checkGameState(){
@@ -350,6 +628,15 @@ public class GameActivity extends AppCompatActivity {
         // If the game has ended
         if(_ticTacToeGame.getState() != TicTacToe.GAME_STATE.PLAYING){
 
+            // The game is added to the match history (it is written later, on a background thread), and counted
+            recordGame();
+            Metrics.countGame(Settings.getInstance().getMode(), Settings.getInstance().getHand(), _ticTacToeGame.getState());
+
+            // The remote player has to know the last move, if user played it
+            if(_remoteHost != null){
+                sendRemoteMoves();
+            }
+
             // All buttons of the grid are disabled
             lockButtons();
 
@@ -385,9 +672,12 @@ public class GameActivity extends AppCompatActivity {
     }
 
 
-    // This method launches a new game instance (by initializing a new TicTacToe instance)
+    // This method launches a new game (by resetting the TicTacToe instance)
     private void newGame(){
 
+        // A CPU move of the previous game can't be played anymore
+        cancelCpuMove();
+
         // If user won, its score is incremented
         _playerScore += (_ticTacToeGame.getState() == TicTacToe.GAME_STATE.A_WON) ? 1 : 0;
 
@@ -398,8 +688,8 @@ public class GameActivity extends AppCompatActivity {
         // The scores labels are refreshed (their text is set to the current values of _playerScore and _cpuScore)
         refreshScores();
 
-        // A new instance of the game engine is created
-        _ticTacToeGame = new TicTacToe();
+        // The game engine is reset to an empty grid
+        _ticTacToeGame.reset();
 
         // The grid is redrawn
         drawGrid();
@@ -413,35 +703,9 @@ public class GameActivity extends AppCompatActivity {
     // Set the background color according to the Theme defined in the Settings instance
     private void setColorTesterColor(){
 
-        // We retrieve the selected theme in the Settings instance
-        Settings.THEMES currentTheme = Settings.getInstance().getTheme();
-        int parsedColor = Color.parseColor("#ffffff");
-
-        // Depending on this theme...
-        switch (currentTheme) {
-            case CHRISTMAS:
-                // ... we set the color to apply to the color defined in app/res/values/colors.xml
-                parsedColor = getResources().getColor(R.color.christmasBackground);
-                break;
-            case EASTER:
-                parsedColor = getResources().getColor(R.color.easterBackground);
-                break;
-            case BEACH:
-                parsedColor = getResources().getColor(R.color.beachBackground);
-                break;
-            case NIGHT:
-                parsedColor = getResources().getColor(R.color.nightBackground);
-                break;
-            default:
-                parsedColor = Color.parseColor("#ffffff");
-
-        }
-
-        // We retrieve the background view...
+        // We retrieve the background view, and apply the color of the current theme palette to it
         View colorTester = findViewById(R.id.colorTester);
-
-        // ... and apply the color to it
-        colorTester.setBackgroundColor(parsedColor);
+        colorTester.setBackgroundColor(ThemePalette.getInstance(this).getBackgroundColor());
     }
 
 
@@ -453,25 +717,8 @@ public class GameActivity extends AppCompatActivity {
         _playerScoreLabel.setText("" + _playerScore);
         _cpuScoreLabel.setText("" + _cpuScore);
 
-        // We also need to give the labels text the correct color of the theme
-        int labelsColor = getResources().getColor(R.color.ticTacToe);
-
-        // That why we retrieve the theme from the Settings instance,...
-        switch (Settings.getInstance().getTheme()){
-            case CHRISTMAS:
-                // ... retrieve the color from the colors.xml file...
-                labelsColor = getResources().getColor(R.color.christmasText);
-                break;
-            case EASTER:
-                labelsColor = getResources().getColor(R.color.easterText);
-                break;
-            case NIGHT:
-                labelsColor = getResources().getColor(R.color.nightText);
-                break;
-            case BEACH:
-                labelsColor = getResources().getColor(R.color.beachText);
-                break;
-        }
+        // We also need to give the labels text the correct color of the theme, taken from the theme palette...
+        int labelsColor = ThemePalette.getInstance(this).getTextColor();
 
         // ... and apply the color to all the labels text
         _playerScoreLabel.setTextColor(labelsColor);
@@ -484,78 +731,79 @@ public class GameActivity extends AppCompatActivity {
     // This method draws the grid
     // It displays the correct picture for each cell, according to the state of the grid of the game engine
     // And it also disable all the cells button where the cells are already taken
+    // Only the cells that changed since the grid was last drawn are updated, unless the pictures changed
     private void drawGrid(){
 
-        // First, we have to get the correct pictures for empty cell, played by user and played by CPU
-        int emptySymbol = R.drawable.empty;
-        int crossSymbol = R.drawable.cross;
-        int circleSymbol = R.drawable.circle;
-
-        // We retrieve the theme from the Settings instance...
-        switch (Settings.getInstance().getTheme()){
-            case TICTACTOE:
-                // ... and then set the pictures to draw to the correct ones, defined in app/res/drawable
-                emptySymbol = R.drawable.empty;
-                crossSymbol = R.drawable.cross;
-                circleSymbol = R.drawable.circle;
-                break;
-            case CHRISTMAS:
-                emptySymbol = R.drawable.christmas_empty;
-                crossSymbol = R.drawable.christmas_cross;
-                // Here is an easter egg. With christmas theme in easy mode, a troll replaces the circle symbol
-                circleSymbol = (Settings.getInstance().getMode() == Settings.MODES.EASY) ? R.drawable.troll : R.drawable.christmas_circle;
-                break;
-            case NIGHT:
-                emptySymbol = R.drawable.night_empty;
-                circleSymbol= R.drawable.night_circle;
-                crossSymbol = R.drawable.night_cross;
-                break;
-            case EASTER:
-                emptySymbol = R.drawable.empty;
-                circleSymbol = R.drawable.easter_circle;
-                crossSymbol = R.drawable.easter_cross;
-                break;
-            case BEACH:
-                emptySymbol = R.drawable.empty;
-                circleSymbol = R.drawable.beach_circle;
-                crossSymbol = R.drawable.beach_cross;
-                break;
+        // If the theme (or the mode) changed, we resolve the pictures again and all the cells have to be drawn...
+        if(resolveSymbols()){
+            for(int i=0; i<BOARD_HEIGHT; i++){
+                for(int j=0; j<BOARD_WIDTH; j++){
+                    drawCell(i, j);
+                }
+            }
+
+        // ... otherwise, we ask the game engine which cells changed since the grid was last drawn
+        }else{
+            if(_changedCells == null){
+                _changedCells = new int[_ticTacToeGame.getCellCount()];
+            }
+
+            int count = _ticTacToeGame.getChangedCells(_drawnVersion, _changedCells);
+
+            for(int k = 0; k < count; k++){
+                drawCell(_changedCells[k] / BOARD_WIDTH, _changedCells[k] % BOARD_WIDTH);
+            }
         }
 
-        // Once the three kinds of picture have been defined, the grid can be drawn
-        // For each line of the grid...
-        for(int i=0; i<3; i++){
+        _drawnVersion = _ticTacToeGame.getVersion();
 
-            // ... and for each cell in the line...
-            for(int j=0; j<3; j++){
 
-                // By default, we draw an empty cell
-                _grid[i][j].setText("");
-                _grid[i][j].setBackgroundResource(emptySymbol);
+        // If the buttons were locked, the empty cells can be played again
+        if(_buttonsLocked){
+            _buttonsLocked = false;
 
-                // But if the cell is not empty...
-                if(_ticTacToeGame.getCell(i,j) != 0){
+            for(int i=0; i<BOARD_HEIGHT; i++){
+                for(int j=0; j<BOARD_WIDTH; j++){
+                    _grid[i][j].setEnabled(_ticTacToeGame.getCell(i,j) == 0);
+                }
+            }
+        }
+    }
 
-                    // ... we disable its button (to make impossible to play it)
-                    _grid[i][j].setEnabled(false);
 
-                    // if the user played it...
-                    if(_ticTacToeGame.getCell(i,j) == 1){
+    // Draws the picture of the given cell, and enables its button only if the cell is empty
+    private void drawCell(int line, int column){
+        int cell = _ticTacToeGame.getCell(line, column);
 
-                        // ... the cross symbol is displayed
-                        _grid[i][j].setBackgroundResource(crossSymbol);
-                    }else{
+        // 0 is an empty cell, 1 a cell played by user (cross symbol) and 3 a cell played by CPU (circle symbol)
+        Bitmap symbol = (cell == 0) ? _symbols[0] : (cell == 1) ? _symbols[1] : _symbols[2];
 
-                        // ... else the CPU played it, hence the circle symbol is displayed
-                        _grid[i][j].setBackgroundResource(circleSymbol);
-                    }
-                }else{
+        // The bitmap is shared, only the drawable wrapping it belongs to the button
+        ViewCompat.setBackground(_grid[line][column], new BitmapDrawable(getResources(), symbol));
+        _grid[line][column].setEnabled(cell == 0);
+    }
 
-                    // The cell is empty, hence its button is enabled. User can play it.
-                    _grid[i][j].setEnabled(true);
-                }
-            }
+
+    // Takes the bitmaps for empty cell, played by user and played by CPU from the bitmap cache (they are decoded now
+    // if they were not preloaded), if the theme or the mode changed
+    // Returns true if they changed (hence the whole grid has to be drawn)
+    private boolean resolveSymbols(){
+        ThemePalette palette = ThemePalette.getInstance(this);
+        Settings.MODES mode = Settings.getInstance().getMode();
+
+        if(_symbols != null && _symbolsPalette == palette && _symbolsMode == mode){
+            return false;
         }
+
+        _symbols = new Bitmap[]{
+                SymbolBitmapCache.get(getResources(), palette.getEmptySymbol(), _cellSize),
+                SymbolBitmapCache.get(getResources(), palette.getCrossSymbol(), _cellSize),
+                SymbolBitmapCache.get(getResources(), palette.getCircleSymbol(mode), _cellSize)
+        };
+        _symbolsPalette = palette;
+        _symbolsMode = mode;
+
+        return true;
     }
 
 
@@ -563,56 +811,35 @@ public class GameActivity extends AppCompatActivity {
     // This method deals with it
     private void manageHand(){
 
+        // Against a remote player, the server decides who plays first
+        if(_remoteHost != null){
+            joinRemoteGame();
+            return;
+        }
+
         // If it is said in the settings that CPU must play first (HAND set to "LET")...
         if(Settings.getInstance().getHand() == Settings.HAND.LET){
 
-            // ... cells buttons are disabled to prevent user to play
-            lockButtons();
-
             // we tells the game engine that the current player is the CPU
             _ticTacToeGame.setCurrentPlayer(TicTacToe.PLAYERS.B);
 
-            // we use a runnable to make the CPU play with some delay
-            Runnable r = new Runnable() {
-                @Override
-                public void run() {
-                    makeCpuPlay();
-                }
-            };
-
-            Handler h = new Handler();
-            h.postDelayed(r, 1000);
-
-
+            // and we make the CPU play (cells buttons are disabled meanwhile, to prevent user to play)
+            requestCpuMove();
         }
 
         // If the HAND is set to "FAIR" in the settings instance, then CPU has one chance out of two to play first
         else if(Settings.getInstance().getHand() == Settings.HAND.FAIR){
 
             // We "flip a coin"...
-            Random myRandom = new Random();
-            float myFloat = myRandom.nextFloat();
+            float myFloat = _random.nextFloat();
 
             if(myFloat < 0.5){
 
-                // ... if the coin tells the CPU plays first, buttons are locked to prevent user from playing
-                lockButtons();
-
-                // we tells the game engine that CPU plays first
+                // ... if the coin tells the CPU plays first, we tells the game engine that CPU plays first
                 _ticTacToeGame.setCurrentPlayer(TicTacToe.PLAYERS.B);
 
-
-                // And make the CPU play with some delay
-                Runnable r = new Runnable() {
-                    @Override
-                    public void run() {
-                        makeCpuPlay();
-                    }
-                };
-
-                Handler h = new Handler();
-                h.postDelayed(r, 1000);
-
+                // And make the CPU play (buttons are locked meanwhile, to prevent user from playing)
+                requestCpuMove();
             }
         }
     }
@@ -1,7 +1,6 @@
 package com.example.etienneguerlain.tictactoe;
 
 import android.content.Intent;
-import android.graphics.Color;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
@@ -45,64 +44,17 @@ public class MenuActivity extends AppCompatActivity {
         setCrossCursor();       // Refresh the currently selected theme illustration
     }
 
+    // The background color and the illustration are taken from the palette of the current theme
+    // (Colors are stored in app/res/values/colors.xml)
     private void setBackgroundColor(){
-
-        // Retrieving the current theme from the settings singleton
-        Settings.THEMES currentTheme = Settings.getInstance().getTheme();
-        int parsedColor = Color.parseColor("#ffffff");
-
-        // Depending on the theme, we define the color that will be applied to the background
-        // (Colors are stored in app/res/values/colors.xml)
-        switch (currentTheme) {
-            case CHRISTMAS:
-                parsedColor = getResources().getColor(R.color.christmasBackground);
-                break;
-            case EASTER:
-                parsedColor = getResources().getColor(R.color.easterBackground);
-                break;
-            case BEACH:
-                parsedColor = getResources().getColor(R.color.beachBackground);
-                break;
-            case NIGHT:
-                parsedColor = getResources().getColor(R.color.nightBackground);
-                break;
-            default:
-                parsedColor = Color.parseColor("#ffffff");
-
-        }
-
-        // Applying the color to the background view
-        colorBackground.setBackgroundColor(parsedColor);
+        colorBackground.setBackgroundColor(ThemePalette.getInstance(this).getBackgroundColor());
     }
 
 
-
     // Depending on the current theme, we set the correct illustration picture
     // (Same logic as in setBackgroundColor)
     private void setCrossCursor(){
-
-        Settings.THEMES currentTheme = Settings.getInstance().getTheme();
-        int cursorImage = R.drawable.cross;
-
-        switch (currentTheme) {
-            case CHRISTMAS:
-                cursorImage = R.drawable.christmas_cross;
-                break;
-            case EASTER:
-                cursorImage = R.drawable.easter_cross;
-                break;
-            case BEACH:
-                cursorImage = R.drawable.beach_cross;
-                break;
-            case NIGHT:
-                cursorImage = R.drawable.night_cross;
-                break;
-            default:
-                cursorImage = R.drawable.cross;
-
-        }
-
-        crossCursor.setImageResource(cursorImage);
+        crossCursor.setImageDrawable(ThemePalette.getInstance(this).getIllustration().newDrawable(getResources()));
     }
 
     // This method retrieves buttons from the loaded layout (activity_menu.xml)
@@ -79,6 +79,9 @@ public class SettingsActivity extends AppCompatActivity {
                     // We refresh the theme illustration picture
                     setCursorImage();
 
+                    // And the cells pictures of the new theme are decoded in the background, for the next game
+                    GameActivity.preloadSymbols(SettingsActivity.this);
+
 
                 }
             });
@@ -106,6 +109,9 @@ public class SettingsActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     Settings.getInstance().setMode(currentMode);
+
+                    // The circle picture may depend on the mode (see ThemePalette)
+                    GameActivity.preloadSymbols(SettingsActivity.this);
                 }
             });
             _modeRadioGroup.addView(modesRadioButtons[i]);
@@ -136,30 +142,8 @@ public class SettingsActivity extends AppCompatActivity {
 
 
     // This method refreshes the currently selected theme illustration
+    // The palette of the newly selected theme is resolved here, hence the other activities find it ready
     private void setCursorImage(){
-        int cursorImage = R.drawable.cross;
-
-        // Depending on the currently selected theme (retrieved from the Settings singleton)...
-        switch (Settings.getInstance().getTheme()) {
-            case CHRISTMAS:
-                // ... we get the correct illustration from app/res/drawable...
-                cursorImage = R.drawable.christmas_cross;
-                break;
-            case EASTER:
-                cursorImage = R.drawable.easter_cross;
-                break;
-            case BEACH:
-                cursorImage = R.drawable.beach_cross;
-                break;
-            case NIGHT:
-                cursorImage = R.drawable.night_cross;
-                break;
-            default:
-                cursorImage = R.drawable.cross;
-
-        }
-
-        // ... and set the illustration picture with it
-        _crossCursor.setImageResource(cursorImage);
+        _crossCursor.setImageDrawable(ThemePalette.getInstance(this).getIllustration().newDrawable(getResources()));
     }
 }
@@ -0,0 +1,63 @@
+package com.example.etienneguerlain.tictactoe;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+
+// This class keeps the settings in the application SharedPreferences
+// Values are saved with apply(), hence they are written to disk in the background, and consecutive changes are batched
+public class SharedPreferencesStorage implements Settings.Storage {
+
+
+    static final String PREFERENCES_NAME = "settings";
+
+    static final String THEME_KEY = "theme";
+    static final String MODE_KEY = "mode";
+    static final String HAND_KEY = "hand";
+
+
+    private final SharedPreferences _preferences;
+
+
+    // getSharedPreferences() starts reading the file in the background, so it can be called when the application starts
+    public SharedPreferencesStorage(Context context){
+        _preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+
+    @Override
+    public Settings.Snapshot load() {
+        Settings.Snapshot defaults = Settings.Snapshot.DEFAULT;
+
+        return new Settings.Snapshot(
+                readValue(THEME_KEY, Settings.THEMES.class, defaults.getTheme()),
+                readValue(MODE_KEY, Settings.MODES.class, defaults.getMode()),
+                readValue(HAND_KEY, Settings.HAND.class, defaults.getHand()));
+    }
+
+
+    @Override
+    public void save(Settings.Snapshot snapshot) {
+        _preferences.edit()
+                .putString(THEME_KEY, snapshot.getTheme().name())
+                .putString(MODE_KEY, snapshot.getMode().name())
+                .putString(HAND_KEY, snapshot.getHand().name())
+                .apply();
+    }
+
+
+    // Values are stored by name. A missing or unknown name (a value removed from the enumeration) gives the default value
+    private <E extends Enum<E>> E readValue(String key, Class<E> type, E defaultValue){
+        String name = _preferences.getString(key, null);
+
+        if(name == null){
+            return defaultValue;
+        }
+
+        try{
+            return Enum.valueOf(type, name);
+        }catch(IllegalArgumentException e){
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.etienneguerlain.tictactoe;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+
+// This class keeps the bitmaps of the cells pictures, decoded at the size of the cells rather than at full resolution
+// Bitmaps are shared by all the themes using the same picture (e.g. the empty cell), and the least recently used
+// ones are dropped when the cache is full
+public class SymbolBitmapCache {
+
+
+    // The cache may use up to an eighth of the memory of the application (its size is counted in kilobytes)
+    private static final LruCache<Long, Bitmap> _cache = new LruCache<Long, Bitmap>((int) (Runtime.getRuntime().maxMemory() / 1024 / 8)){
+        @Override
+        protected int sizeOf(Long key, Bitmap bitmap) {
+            return bitmap.getByteCount() / 1024;
+        }
+    };
+
+    // Bitmaps are preloaded on this background thread
+    private static final ExecutorService _loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "symbol-bitmaps");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+
+    private SymbolBitmapCache(){
+    }
+
+
+    // Returns the bitmap of the given picture, at the given size (in pixels), decoding it if it is not in the cache
+    public static Bitmap get(Resources resources, int symbol, int size){
+        Long key = ((long) symbol << 32) | size;
+        Bitmap bitmap = _cache.get(key);
+
+        if(bitmap == null){
+            bitmap = decode(resources, symbol, size);
+            _cache.put(key, bitmap);
+        }
+
+        return bitmap;
+    }
+
+
+    // Decodes the given pictures in the background, so that they are in the cache when the grid is drawn
+    public static void preload(final Resources resources, final int size, final int... symbols){
+        _loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                for(int symbol : symbols){
+                    get(resources, symbol, size);
+                }
+            }
+        });
+    }
+
+
+    // Decodes the picture subsampled by the biggest power of 2 that keeps it larger than the cell,
+    // then scales it to the exact size of the cell
+    private static Bitmap decode(Resources resources, int symbol, int size){
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+
+        // We first read the dimensions of the picture only
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, symbol, options);
+
+        int sampleSize = 1;
+        while(options.outWidth / (sampleSize * 2) >= size && options.outHeight / (sampleSize * 2) >= size){
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap bitmap = BitmapFactory.decodeResource(resources, symbol, options);
+
+        if(bitmap.getWidth() != size || bitmap.getHeight() != size){
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap, size, size, true);
+            if(scaled != bitmap){
+                bitmap.recycle();
+            }
+            bitmap = scaled;
+        }
+
+        return bitmap;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.etienneguerlain.tictactoe;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.support.v4.content.ContextCompat;
+
+
+// This class holds the colors and pictures of a theme, resolved once from the resources
+// The palette of the current theme is shared by all the activities, and resolved again only when the theme changes
+public class ThemePalette {
+
+
+    // Palette of the last theme asked for
+    private static volatile ThemePalette _current;
+
+
+    private final Settings.THEMES _theme;
+
+    private final int _backgroundColor;
+    private final int _textColor;
+
+    // Pictures (resources ids) of an empty cell, a cell played by user and a cell played by CPU
+    // Their bitmaps are decoded at the size of the cells by SymbolBitmapCache
+    private final int _emptySymbol;
+    private final int _crossSymbol;
+    private final int _circleSymbol;
+
+    // Here is an easter egg. With christmas theme in easy mode, a troll replaces the circle symbol (0 for other themes)
+    private final int _trollSymbol;
+
+    // Picture illustrating the theme in the menu and settings (the cross symbol, at its own size)
+    private final Drawable.ConstantState _illustration;
+
+
+    // Returns the palette of the theme currently selected in the Settings instance
+    public static ThemePalette getInstance(Context context){
+        Settings.THEMES theme = Settings.getInstance().getTheme();
+        ThemePalette palette = _current;
+
+        if(palette == null || palette._theme != theme){
+            palette = new ThemePalette(context.getApplicationContext(), theme);
+            _current = palette;
+        }
+
+        return palette;
+    }
+
+
+    // Resolves all the colors and pictures of the given theme (they are defined in app/res/values/colors.xml
+    // and app/res/drawable)
+    private ThemePalette(Context context, Settings.THEMES theme){
+        _theme = theme;
+
+        int backgroundColor = Color.WHITE;
+        int textColor = R.color.ticTacToe;
+        int emptySymbol = R.drawable.empty;
+        int crossSymbol = R.drawable.cross;
+        int circleSymbol = R.drawable.circle;
+
+        switch (theme){
+            case CHRISTMAS:
+                backgroundColor = ContextCompat.getColor(context, R.color.christmasBackground);
+                textColor = R.color.christmasText;
+                emptySymbol = R.drawable.christmas_empty;
+                crossSymbol = R.drawable.christmas_cross;
+                circleSymbol = R.drawable.christmas_circle;
+                break;
+            case EASTER:
+                backgroundColor = ContextCompat.getColor(context, R.color.easterBackground);
+                textColor = R.color.easterText;
+                circleSymbol = R.drawable.easter_circle;
+                crossSymbol = R.drawable.easter_cross;
+                break;
+            case BEACH:
+                backgroundColor = ContextCompat.getColor(context, R.color.beachBackground);
+                textColor = R.color.beachText;
+                circleSymbol = R.drawable.beach_circle;
+                crossSymbol = R.drawable.beach_cross;
+                break;
+            case NIGHT:
+                backgroundColor = ContextCompat.getColor(context, R.color.nightBackground);
+                textColor = R.color.nightText;
+                emptySymbol = R.drawable.night_empty;
+                circleSymbol = R.drawable.night_circle;
+                crossSymbol = R.drawable.night_cross;
+                break;
+        }
+
+        _backgroundColor = backgroundColor;
+        _textColor = ContextCompat.getColor(context, textColor);
+
+        _emptySymbol = emptySymbol;
+        _crossSymbol = crossSymbol;
+        _circleSymbol = circleSymbol;
+        _trollSymbol = (theme == Settings.THEMES.CHRISTMAS) ? R.drawable.troll : 0;
+
+        _illustration = ContextCompat.getDrawable(context, crossSymbol).getConstantState();
+    }
+
+
+    // Getters
+    public Settings.THEMES getTheme(){
+        return _theme;
+    }
+
+    public int getBackgroundColor(){
+        return _backgroundColor;
+    }
+
+    public int getTextColor(){
+        return _textColor;
+    }
+
+    public int getEmptySymbol(){
+        return _emptySymbol;
+    }
+
+    public int getCrossSymbol(){
+        return _crossSymbol;
+    }
+
+    public int getCircleSymbol(Settings.MODES mode){
+        return (_trollSymbol != 0 && mode == Settings.MODES.EASY) ? _trollSymbol : _circleSymbol;
+    }
+
+    // Each view must be given its own drawable: call newDrawable() on the returned state
+    public Drawable.ConstantState getIllustration(){
+        return _illustration;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.etienneguerlain.tictactoe;
+
+import android.app.Application;
+
+
+// Application class, created before any activity
+// It installs the storage of the settings, which are then read at first access, and enables the metrics
+public class TicTacToeApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        Settings.getInstance().setStorage(new SharedPreferencesStorage(this));
+
+        // Engine and CPU players metrics are only collected in debug builds (they are logged when a game activity ends)
+        Metrics.setEnabled(BuildConfig.DEBUG);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+// Measures how long the CPU player of each difficulty level takes to choose a move on the classic grid,
+// on an empty grid and after two moves
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CpuPlayerBenchmark {
+
+
+    @Param({"EASY", "NORMAL", "IMPOSSIBLE"})
+    public Settings.MODES mode;
+
+    // Tree searches run on one thread, so that results don't depend on the number of cores
+    private CpuPlayer _player;
+
+    private TicTacToe _emptyGame;
+    private TicTacToe _openingGame;
+
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        _emptyGame = new TicTacToe();
+        _player = CpuPlayers.create(mode, _emptyGame.getCellCount(), PerfectPlayTableGenerator.generate(), new Random(42), 1);
+
+        _openingGame = new TicTacToe();
+        _openingGame.playCell(0, 0);
+        _openingGame.playCell(1, 1);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        CpuPlayers.release(_player);
+    }
+
+
+    @Benchmark
+    public int chooseMoveOnEmptyGrid(){
+        return _player.chooseMove(_emptyGame);
+    }
+
+
+    @Benchmark
+    public int chooseMoveAfterOpening(){
+        return _player.chooseMove(_openingGame);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+// Measures the hot paths of the game engine: playing a cell (which checks the grid), copying the grid,
+// listing the legal moves and playing whole random games
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EngineBenchmark {
+
+
+    // Grid sizes, as "width x height x win length"
+    @Param({"3x3x3", "15x15x5"})
+    public String grid;
+
+    private TicTacToe _game;
+    private TicTacToe _halfFullGame;
+    private Random _random;
+    private int[] _legalMoves;
+
+    // Cell that completes an alignment for player A in _winningGame, so that playing it runs the whole win check
+    private TicTacToe _winningGame;
+    private int _winningLine;
+    private int _winningColumn;
+
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        String[] size = grid.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        int winLength = Integer.parseInt(size[2]);
+
+        _game = new TicTacToe(width, height, winLength);
+        _random = new Random(42);
+        _legalMoves = new int[_game.getCellCount()];
+
+        // Half of the grid is played randomly, taking back the moves that would end the game
+        _halfFullGame = new TicTacToe(width, height, winLength);
+        while(_halfFullGame.getMoveCount() < _halfFullGame.getCellCount() / 2){
+            int count = _halfFullGame.getLegalMoves(_legalMoves);
+            int move = _legalMoves[_random.nextInt(count)];
+            _halfFullGame.playCell(move / width, move % width);
+
+            if(_halfFullGame.getState() != TicTacToe.GAME_STATE.PLAYING){
+                _halfFullGame.undo();
+            }
+        }
+
+        // Player A has winLength - 1 marks on the first line, player B on the second line
+        _winningGame = new TicTacToe(width, height, winLength);
+        for(int j = 0; j < winLength - 1; j++){
+            _winningGame.playCell(0, j);
+            _winningGame.playCell(1, j);
+        }
+        _winningLine = 0;
+        _winningColumn = winLength - 1;
+    }
+
+
+    // A winning move followed by its undo: the win check runs in all four directions
+    @Benchmark
+    public TicTacToe.GAME_STATE playWinningCell(){
+        _winningGame.playCell(_winningLine, _winningColumn);
+        TicTacToe.GAME_STATE state = _winningGame.getState();
+        _winningGame.undo();
+        return state;
+    }
+
+
+    // A move that doesn't end the game, followed by its undo
+    @Benchmark
+    public TicTacToe.PLAY_RESULT playAndUndoCell(){
+        TicTacToe.PLAY_RESULT result = _game.playCell(0, 0);
+        _game.undo();
+        return result;
+    }
+
+
+    @Benchmark
+    public int[][] getGrid(){
+        return _halfFullGame.getGrid();
+    }
+
+
+    @Benchmark
+    public int getLegalMoves(){
+        return _halfFullGame.getLegalMoves(_legalMoves);
+    }
+
+
+    @Benchmark
+    public long getCanonicalHash(){
+        return _halfFullGame.getCanonicalHash();
+    }
+
+
+    // A whole game played randomly, on a reset engine
+    @Benchmark
+    public TicTacToe.GAME_STATE randomPlayout(){
+        _game.reset();
+
+        while(_game.getState() == TicTacToe.GAME_STATE.PLAYING){
+            int count = _game.getLegalMoves(_legalMoves);
+            int move = _legalMoves[_random.nextInt(count)];
+            _game.playCell(move / _game.getWidth(), move % _game.getWidth());
+        }
+
+        return _game.getState();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+
+// Load test of the session manager: all the cores create, play and close sessions at once, among thousands
+// of sessions that stay open. Throughput should grow with the number of threads (e.g. -PjmhArgs="GameSession -t 1")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(Threads.MAX)
+public class GameSessionBenchmark {
+
+
+    private static final int OPEN_SESSIONS = 10000;
+
+    // A whole game of the classic grid, where all the cells are played (it ends in a tie)
+    private static final int[] MOVES = {4, 0, 2, 6, 3, 5, 1, 7, 8};
+
+    private GameSessionManager _manager;
+    private long[] _openSessions;
+
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        _manager = new GameSessionManager(TimeUnit.MINUTES.toMillis(10));
+        _openSessions = new long[OPEN_SESSIONS];
+
+        for(int i = 0; i < OPEN_SESSIONS; i++){
+            _openSessions[i] = _manager.create(3, 3, 3).getId();
+        }
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        _manager.shutdown();
+    }
+
+
+    // A new session, where a whole game is played before it is closed
+    @Benchmark
+    public TicTacToe.GAME_STATE playWholeGame(){
+        GameSession session = _manager.create(3, 3, 3);
+
+        for(int move : MOVES){
+            session.playCell(move / 3, move % 3);
+        }
+
+        TicTacToe.GAME_STATE state = session.getState();
+        _manager.close(session.getId());
+
+        return state;
+    }
+
+
+    // A request on one of the open sessions
+    @Benchmark
+    public TicTacToe.PLAYERS lookUpSession(){
+        long id = _openSessions[ThreadLocalRandom.current().nextInt(OPEN_SESSIONS)];
+        return _manager.get(id).getCurrentPlayer();
+    }
+}
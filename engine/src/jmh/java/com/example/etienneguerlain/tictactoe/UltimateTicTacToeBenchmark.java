@@ -0,0 +1,70 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+// Measures the hot paths of the Ultimate Tic Tac Toe engine, as a tree search runs them: playing and taking back
+// a move, listing the legal moves and playing whole random games
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UltimateTicTacToeBenchmark {
+
+
+    private UltimateTicTacToe _game;
+    private UltimateTicTacToe _midGame;
+    private Random _random;
+    private int[] _legalMoves;
+
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        _game = new UltimateTicTacToe();
+        _random = new Random(42);
+        _legalMoves = new int[UltimateTicTacToe.CELL_COUNT];
+
+        // A third of the cells are played randomly, taking back the moves that would end the game
+        _midGame = new UltimateTicTacToe();
+        while(_midGame.getMoveCount() < UltimateTicTacToe.CELL_COUNT / 3){
+            int count = _midGame.getLegalMoves(_legalMoves);
+            _midGame.playMove(_legalMoves[_random.nextInt(count)]);
+
+            if(_midGame.getState() != TicTacToe.GAME_STATE.PLAYING){
+                _midGame.undo();
+            }
+        }
+    }
+
+
+    @Benchmark
+    public int playAndUndoMove(){
+        _midGame.getLegalMoves(_legalMoves);
+        _midGame.playMove(_legalMoves[0]);
+        _midGame.undo();
+        return _midGame.getMoveCount();
+    }
+
+
+    @Benchmark
+    public int getLegalMoves(){
+        return _midGame.getLegalMoves(_legalMoves);
+    }
+
+
+    // A whole game played randomly, on a reset engine
+    @Benchmark
+    public TicTacToe.GAME_STATE randomPlayout(){
+        _game.reset();
+        return _game.playRandomGame(_random);
+    }
+}
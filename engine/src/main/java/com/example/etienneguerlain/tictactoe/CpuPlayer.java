@@ -0,0 +1,10 @@
+package com.example.etienneguerlain.tictactoe;
+
+
+// A CpuPlayer chooses the moves of the CPU. Each difficulty level (see Settings.MODES) is backed by one of them
+public interface CpuPlayer {
+
+    // Returns the cell index (line * width + column) the current player of the given game should play
+    // The game must not be finished, and it is left unchanged
+    int chooseMove(TicTacToe game);
+}
@@ -0,0 +1,100 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.Random;
+
+
+// This class creates the CPU player backing each difficulty level (see Settings.MODES)
+// The more difficult the level, the more computing power is given to the CPU
+public class CpuPlayers {
+
+
+    // Computing power given to the CPU in NORMAL mode (number of moves looked ahead, and of positions searched
+    // before choosing a move), and in IMPOSSIBLE mode on grids too big to be solved (thinking time, in milliseconds)
+    // NORMAL looks three moves ahead, its own move last: it sees its forks, but not those of its opponent. Hence it
+    // can be beaten on the classic grid, while it beats EASY about 19 games out of 20
+    // (at two moves ahead, it can't be beaten on the classic grid: it plays like IMPOSSIBLE)
+    public static final int NORMAL_DEPTH = 3;
+    public static final int NORMAL_NODE_BUDGET = 20000;
+    public static final int IMPOSSIBLE_THINKING_TIME = 1000;
+
+    // Biggest grid the IMPOSSIBLE mode solves (the perfect play table and the tablebases hold such grids, and the
+    // negamax solver solves them from the empty grid in a fraction of a second). An exhaustive search of a bigger grid
+    // may run for minutes: a 5x5 grid with 4 to win is not solved within a minute
+    public static final int MAX_SOLVED_CELLS = Tablebase.MAX_CELLS;
+
+
+    private CpuPlayers(){
+    }
+
+
+    // Creates the CPU player of the given difficulty level, for games with the given number of cells
+    // The perfect play table may be null, and tree searches run on the given number of threads
+    // The time taken by each move is recorded in the "cpu.move.<mode>" histogram (see Metrics)
+    public static CpuPlayer create(Settings.MODES mode, int cellCount, PerfectPlayTable table, Random random, int threadCount){
+        return create(mode, cellCount, table, null, random, threadCount);
+    }
+
+
+    // Same as above, where the IMPOSSIBLE mode reads its moves from the given tablebase (which may be null)
+    // when it holds the grid of the game
+    public static CpuPlayer create(Settings.MODES mode, int cellCount, PerfectPlayTable table, Tablebase tablebase, Random random, int threadCount){
+        return new MeteredCpuPlayer(createPlayer(mode, cellCount, table, tablebase, random, threadCount), Metrics.histogram(Metrics.CPU_MOVE + mode));
+    }
+
+
+    private static CpuPlayer createPlayer(Settings.MODES mode, int cellCount, PerfectPlayTable table, Tablebase tablebase, Random random, int threadCount){
+
+        switch (mode){
+            case EASY:
+                // In EASY mode, CPU plays randomly
+                return new RandomCpuPlayer(random);
+
+            case NORMAL:
+                // In NORMAL mode, CPU looks three moves ahead: it sees immediate wins, threats and its own forks,
+                // but misses the forks of its opponent
+                return new IterativeDeepeningCpuPlayer(NORMAL_NODE_BUDGET, NORMAL_DEPTH, random);
+
+            default:
+                // In IMPOSSIBLE mode, CPU always plays the best move, as long as the grid is small enough to be solved
+                // Otherwise, it runs a tree search during a given thinking time
+                if(cellCount <= MAX_SOLVED_CELLS){
+                    return new PerfectCpuPlayer(table, tablebase);
+                }
+                return MctsCpuPlayer.withTimeBudget(IMPOSSIBLE_THINKING_TIME, threadCount);
+        }
+    }
+
+
+    // Stops the threads a CPU player may have started
+    public static void release(CpuPlayer player){
+        if(player instanceof MeteredCpuPlayer){
+            player = ((MeteredCpuPlayer) player)._player;
+        }
+
+        if(player instanceof MctsCpuPlayer){
+            ((MctsCpuPlayer) player).shutdown();
+        }
+    }
+
+
+    // Records the time taken by each move of a CPU player
+    private static class MeteredCpuPlayer implements CpuPlayer {
+
+        private final CpuPlayer _player;
+        private final Metrics.Histogram _moveTimes;
+
+        MeteredCpuPlayer(CpuPlayer player, Metrics.Histogram moveTimes){
+            _player = player;
+            _moveTimes = moveTimes;
+        }
+
+        @Override
+        public int chooseMove(TicTacToe game) {
+            long start = _moveTimes.start();
+            int move = _player.chooseMove(game);
+            _moveTimes.record(start);
+
+            return move;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.nio.ByteBuffer;
+
+
+// Binary protocol between GameServer and its clients (see RemotePlayer)
+// Every message is a frame of FRAME_SIZE bytes: its type, then three arguments of one byte each (unused ones are 0)
+
+// A client sends JOIN to be paired with another client that joined with the same grid. Both then receive START,
+// and the first player sends MOVE. Each MOVE is answered by RESULT, and, if the move was played, the other client
+// receives OPPONENT_MOVE. Clients may JOIN again once the game is finished, to play another one
+public class GameProtocol {
+
+
+    public static final int FRAME_SIZE = 4;
+
+    // Client to server
+
+    // width, height, win length
+    public static final byte JOIN = 1;
+    // line, column
+    public static final byte MOVE = 2;
+
+    // Server to client
+
+    // 1 if the client plays first, 0 otherwise
+    public static final byte START = 3;
+    // PLAY_RESULT ordinal (or REFUSED), then GAME_STATE ordinal
+    public static final byte RESULT = 4;
+    // line, column, then GAME_STATE ordinal
+    public static final byte OPPONENT_MOVE = 5;
+    // The opponent left before the end of the game
+    public static final byte OPPONENT_LEFT = 6;
+    // The last frame could not be understood (e.g. a JOIN with an invalid grid, or one bigger than the server hosts)
+    // The server then closes the connection
+    public static final byte ERROR = 7;
+
+    // Result of a move sent while the client is not in a game, or when it is not its turn
+    public static final int REFUSED = TicTacToe.PLAY_RESULT.values().length;
+
+
+    private GameProtocol(){
+    }
+
+
+    // Writes a frame at the current position of the given buffer
+    public static void putFrame(ByteBuffer buffer, byte type, int first, int second, int third){
+        buffer.put(type).put((byte) first).put((byte) second).put((byte) third);
+    }
+
+    // Reads the argument of the frame starting at the given position (argument 0 is the first one)
+    // Arguments are unsigned
+    public static int getArgument(ByteBuffer buffer, int frameStart, int argument){
+        return buffer.get(frameStart + 1 + argument) & 0xFF;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.etienneguerlain.tictactoe;
+
+
+// This class packs a whole game of the classic 3x3 grid in a long (8 bytes), so that games can be stored by billions
+// A record is a plain long, hence logging a game creates no object
+
+// Layout of a record:
+// bits 0 to 35 hold the moves, 4 bits per move (cell index line * 3 + column), the first move in the lowest bits
+// bits 36 to 39 hold the number of moves, bit 40 is set when player B played first,
+// and bits 41 and 42 hold the final game state
+public class GameRecord {
+
+
+    private static final int MOVE_BITS = 4;
+    private static final int MAX_MOVES = 9;
+    private static final int COUNT_SHIFT = 36;
+    private static final int FIRST_PLAYER_SHIFT = 40;
+    private static final int STATE_SHIFT = 41;
+
+    // Cached, since values() returns a new array at each call
+    private static final TicTacToe.GAME_STATE[] STATES = TicTacToe.GAME_STATE.values();
+
+
+    private GameRecord(){
+    }
+
+
+    // Packs the moves, first player and state of the given classic 3x3 game
+    public static long of(TicTacToe game){
+
+        if(game.getWidth() != 3 || game.getHeight() != 3){
+            throw new UnsupportedOperationException("Only games of the classic 3x3 grid can be recorded");
+        }
+
+        int moveCount = game.getMoveCount();
+        long record = 0;
+
+        for(int i = 0; i < moveCount; i++){
+            record |= (long) game.getMove(i) << (i * MOVE_BITS);
+        }
+
+        // Players play alternately: after an even number of moves, the first player has to play again
+        TicTacToe.PLAYERS current = game.getCurrentPlayer();
+        boolean firstIsB = ((moveCount & 1) == 0) == (current == TicTacToe.PLAYERS.B);
+
+        return record
+                | ((long) moveCount << COUNT_SHIFT)
+                | (firstIsB ? 1L << FIRST_PLAYER_SHIFT : 0)
+                | ((long) game.getState().ordinal() << STATE_SHIFT);
+    }
+
+
+    public static int getMoveCount(long record){
+        return (int) (record >>> COUNT_SHIFT) & 0xF;
+    }
+
+    // Returns the cell index (line * 3 + column) of the given move, 0 being the first move of the game
+    public static int getMove(long record, int index){
+        if(index < 0 || index >= getMoveCount(record)){
+            throw new IndexOutOfBoundsException("Move " + index + " is not in the record");
+        }
+
+        return (int) (record >>> (index * MOVE_BITS)) & 0xF;
+    }
+
+    public static TicTacToe.PLAYERS getFirstPlayer(long record){
+        return ((record >>> FIRST_PLAYER_SHIFT & 1) == 0) ? TicTacToe.PLAYERS.A : TicTacToe.PLAYERS.B;
+    }
+
+    public static TicTacToe.GAME_STATE getState(long record){
+        return STATES[(int) (record >>> STATE_SHIFT) & 3];
+    }
+
+
+    // Replays a recorded game in the given classic 3x3 game engine, which is reset first
+    public static void replay(long record, TicTacToe game){
+        game.reset();
+        game.setCurrentPlayer(getFirstPlayer(record));
+
+        int moveCount = Math.min(getMoveCount(record), MAX_MOVES);
+        for(int i = 0; i < moveCount; i++){
+            int cell = getMove(record, i);
+            game.playCell(cell / 3, cell % 3);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+
+// This class reads game records (see GameRecord) written by a GameRecordWriter, by batches
+public class GameRecordReader implements Closeable {
+
+
+    private final ReadableByteChannel _channel;
+    private final ByteBuffer _buffer;
+
+    // Set once the channel has no more bytes
+    private boolean _endOfStream;
+
+
+    public GameRecordReader(ReadableByteChannel channel){
+        this(channel, GameRecordWriter.DEFAULT_BATCH_SIZE);
+    }
+
+
+    public GameRecordReader(ReadableByteChannel channel, int batchSize){
+        _channel = channel;
+        _buffer = ByteBuffer.allocateDirect(batchSize * 8);
+
+        // The buffer starts empty, ready to be read
+        _buffer.flip();
+    }
+
+
+    // Reads records in the given array, and returns how many were read (-1 once all the records have been read)
+    // Fewer records than the array can hold may be returned, if the channel has no bytes available for now
+    public int read(long[] records) throws IOException {
+        int count = 0;
+
+        while(true){
+            while(count < records.length && _buffer.remaining() >= 8){
+                records[count++] = _buffer.getLong();
+            }
+
+            if(count == records.length || _endOfStream || fill() <= 0){
+                break;
+            }
+        }
+
+        return (count == 0 && _endOfStream) ? -1 : count;
+    }
+
+
+    // Reads more bytes from the channel, keeping the bytes of an incomplete record
+    // Returns the number of bytes read, or -1 if the channel has no more bytes
+    private int fill() throws IOException {
+        _buffer.compact();
+        int read = _channel.read(_buffer);
+        _buffer.flip();
+
+        if(read < 0){
+            _endOfStream = true;
+
+            if(_buffer.hasRemaining()){
+                throw new IOException("Truncated game record (" + _buffer.remaining() + " bytes)");
+            }
+        }
+
+        return read;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+}
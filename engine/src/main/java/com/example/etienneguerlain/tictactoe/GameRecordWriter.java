@@ -0,0 +1,73 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+
+// This class writes game records (see GameRecord) to a channel (a file, a socket...)
+// Records are gathered in a buffer and written by batches, 8 bytes per record and nothing else
+public class GameRecordWriter implements Closeable {
+
+
+    // Number of records written at once
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+
+
+    private final WritableByteChannel _channel;
+    private final ByteBuffer _buffer;
+
+
+    public GameRecordWriter(WritableByteChannel channel){
+        this(channel, DEFAULT_BATCH_SIZE);
+    }
+
+
+    public GameRecordWriter(WritableByteChannel channel, int batchSize){
+        _channel = channel;
+        _buffer = ByteBuffer.allocateDirect(batchSize * 8);
+    }
+
+
+    // Adds a record to the batch, which is written to the channel once full
+    public void write(long record) throws IOException {
+
+        if(!_buffer.hasRemaining()){
+            flush();
+        }
+
+        _buffer.putLong(record);
+    }
+
+
+    // Adds several records at once
+    public void write(long[] records, int offset, int count) throws IOException {
+        for(int i = offset; i < offset + count; i++){
+            write(records[i]);
+        }
+    }
+
+
+    // Writes the records of the current batch to the channel
+    public void flush() throws IOException {
+        _buffer.flip();
+
+        while(_buffer.hasRemaining()){
+            _channel.write(_buffer);
+        }
+
+        _buffer.clear();
+    }
+
+
+    // Writes the last records, and closes the channel
+    @Override
+    public void close() throws IOException {
+        try{
+            flush();
+        }finally{
+            _channel.close();
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+
+// This server hosts games between two remote players, using the protocol of GameProtocol
+// All the connections are handled by a single thread, with a selector. Games are only used from this thread,
+// hence they need no locking. Each connection reads and writes frames in its own buffers, allocated once
+// It doesn't host its games in a GameSessionManager: sessions are locked for requests coming from any thread,
+// and evicted by their own thread, while the games of the server belong to the selector thread and end with
+// their connections
+public class GameServer implements Runnable, Closeable {
+
+
+    // Number of frames a connection buffers, when they arrive faster than they are handled, or when the client
+    // reads them slower than they are sent (the client is then disconnected)
+    private static final int BUFFERED_FRAMES = 16;
+
+    // Biggest grid side the server hosts games on (a Go board). Grids are checked against it before a game engine
+    // is allocated for them, since a single frame can ask for a 255x255 grid
+    public static final int MAX_GRID_SIDE = 19;
+
+    private static final Metrics.Counter CONNECTIONS_COUNTER = Metrics.counter("server.connections");
+    private static final Metrics.Counter GAMES_COUNTER = Metrics.counter("server.games");
+    private static final Metrics.Counter FRAMES_COUNTER = Metrics.counter("server.frames");
+
+
+    private final Selector _selector;
+    private final ServerSocketChannel _serverChannel;
+    private final Random _random = new Random();
+
+    // Clients waiting for an opponent, by grid (see gridKey)
+    private final Map<Integer, Connection> _waiting = new HashMap<Integer, Connection>();
+
+    private volatile boolean _closed;
+
+
+    // Usage: GameServer [<port>]
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 7777;
+
+        GameServer server = new GameServer(new InetSocketAddress(port));
+        System.out.println("Listening on port " + server.getPort());
+        server.run();
+    }
+
+
+    // Opens the server on the given address (port 0 picks a free port)
+    public GameServer(InetSocketAddress address) throws IOException {
+        _selector = Selector.open();
+        _serverChannel = ServerSocketChannel.open();
+        _serverChannel.socket().setReuseAddress(true);
+        _serverChannel.socket().bind(address, 1024);
+        _serverChannel.configureBlocking(false);
+        _serverChannel.register(_selector, SelectionKey.OP_ACCEPT);
+    }
+
+
+    public int getPort(){
+        return _serverChannel.socket().getLocalPort();
+    }
+
+
+    // Runs the server on a new daemon thread
+    public Thread start(){
+        Thread thread = new Thread(this, "game-server");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+
+    // Handles the connections until the server is closed
+    @Override
+    public void run(){
+        try{
+            while(!_closed){
+                _selector.select();
+
+                Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+                while(keys.hasNext()){
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if(!key.isValid()){
+                        continue;
+                    }
+
+                    // Failing to accept a client (e.g. too many open files) doesn't stop the server
+                    if(key.isAcceptable()){
+                        try{
+                            accept();
+                        }catch(IOException e){
+                            System.err.println("Unable to accept a connection: " + e);
+                        }
+                        continue;
+                    }
+
+                    Connection connection = (Connection) key.attachment();
+                    if(key.isReadable()){
+                        connection.read();
+                    }
+                    if(key.isValid() && key.isWritable()){
+                        connection.flush();
+                    }
+                }
+            }
+        }catch(IOException e){
+            if(!_closed){
+                System.err.println("Game server stopped: " + e);
+            }
+        }finally{
+            closeAll();
+        }
+    }
+
+
+    // Stops the server, and closes all the connections
+    @Override
+    public void close(){
+        _closed = true;
+        _selector.wakeup();
+    }
+
+
+    private void closeAll(){
+        for(SelectionKey key : _selector.keys()){
+            try{
+                key.channel().close();
+            }catch(IOException e){
+                // Nothing more can be done with this connection
+            }
+        }
+        try{
+            _selector.close();
+        }catch(IOException e){
+            // Idem
+        }
+    }
+
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+
+        while((channel = _serverChannel.accept()) != null){
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            Connection connection = new Connection(channel);
+            connection._key = channel.register(_selector, SelectionKey.OP_READ, connection);
+            CONNECTIONS_COUNTER.add(1);
+        }
+    }
+
+
+    // Grids are told apart by their size and win length
+    private static int gridKey(int width, int height, int winLength){
+        return (width << 16) | (height << 8) | winLength;
+    }
+
+
+
+    // A game between two connections, the first one playing as player A (who plays first)
+    private static class Match {
+
+        final TicTacToe _game;
+        final Connection[] _players = new Connection[2];
+
+        Match(TicTacToe game, Connection first, Connection second){
+            _game = game;
+            _players[0] = first;
+            _players[1] = second;
+        }
+
+        Connection getCurrent(){
+            return (_game.getCurrentPlayer() == TicTacToe.PLAYERS.A) ? _players[0] : _players[1];
+        }
+
+        Connection getOpponent(Connection connection){
+            return (_players[0] == connection) ? _players[1] : _players[0];
+        }
+    }
+
+
+
+    // A client connection, with its buffers and the game it is playing
+    private class Connection {
+
+        final SocketChannel _channel;
+        final ByteBuffer _in = ByteBuffer.allocate(GameProtocol.FRAME_SIZE * BUFFERED_FRAMES);
+        final ByteBuffer _out = ByteBuffer.allocate(GameProtocol.FRAME_SIZE * BUFFERED_FRAMES);
+        SelectionKey _key;
+
+        Match _match;
+        int _gridKey = -1;
+
+        Connection(SocketChannel channel){
+            _channel = channel;
+        }
+
+
+        // Reads the frames received, and handles the complete ones
+        // Errors on a connection only close this connection (and end its game)
+        void read(){
+            try{
+                if(_channel.read(_in) < 0){
+                    disconnect();
+                    return;
+                }
+            }catch(IOException e){
+                disconnect();
+                return;
+            }
+
+            _in.flip();
+            while(_in.remaining() >= GameProtocol.FRAME_SIZE && _channel.isOpen()){
+                int start = _in.position();
+                handleFrame(_in.get(start), GameProtocol.getArgument(_in, start, 0),
+                        GameProtocol.getArgument(_in, start, 1), GameProtocol.getArgument(_in, start, 2));
+                _in.position(start + GameProtocol.FRAME_SIZE);
+            }
+            _in.compact();
+
+            flush();
+        }
+
+
+        void handleFrame(byte type, int first, int second, int third){
+            FRAMES_COUNTER.add(1);
+
+            switch (type){
+                case GameProtocol.JOIN:
+                    join(first, second, third);
+                    break;
+                case GameProtocol.MOVE:
+                    move(first, second);
+                    break;
+                default:
+                    send(GameProtocol.ERROR, type, 0, 0);
+                    flush();
+                    disconnect();
+            }
+        }
+
+
+        // Pairs the client with a client waiting for the same grid, or makes it wait
+        // Nothing is allocated for a waiting client: the game engine is only created once the match is formed
+        void join(int width, int height, int winLength){
+            leave();
+
+            if(width < 1 || width > MAX_GRID_SIDE || height < 1 || height > MAX_GRID_SIDE
+                    || winLength < 1 || (winLength > width && winLength > height)){
+                send(GameProtocol.ERROR, GameProtocol.JOIN, 0, 0);
+                flush();
+                disconnect();
+                return;
+            }
+
+            int key = gridKey(width, height, winLength);
+            Connection opponent = _waiting.remove(key);
+
+            if(opponent == null){
+                _waiting.put(key, this);
+                _gridKey = key;
+                return;
+            }
+
+            // The grid was checked above, hence the game engine accepts it
+            TicTacToe game = new TicTacToe(width, height, winLength);
+
+            // The first player is drawn at random
+            Match match = _random.nextBoolean() ? new Match(game, this, opponent) : new Match(game, opponent, this);
+            this._match = match;
+            opponent._match = match;
+            opponent._gridKey = -1;
+            GAMES_COUNTER.add(1);
+
+            match._players[0].send(GameProtocol.START, 1, 0, 0);
+            match._players[1].send(GameProtocol.START, 0, 0, 0);
+            opponent.flush();
+        }
+
+
+        // Plays the move if it is the client's turn, answers it, and forwards it to the opponent
+        void move(int line, int column){
+            Match match = _match;
+
+            if(match == null || match._game.getState() != TicTacToe.GAME_STATE.PLAYING || match.getCurrent() != this){
+                send(GameProtocol.RESULT, GameProtocol.REFUSED, (match == null) ? 0 : match._game.getState().ordinal(), 0);
+                return;
+            }
+
+            TicTacToe.PLAY_RESULT result = match._game.playCell(line, column);
+            int state = match._game.getState().ordinal();
+            send(GameProtocol.RESULT, result.ordinal(), state, 0);
+
+            if(result == TicTacToe.PLAY_RESULT.OK){
+                Connection opponent = match.getOpponent(this);
+                opponent.send(GameProtocol.OPPONENT_MOVE, line, column, state);
+                opponent.flush();
+            }
+        }
+
+
+        // Leaves the current game (the opponent is told if it was not finished), or stops waiting for an opponent
+        void leave(){
+            if(_gridKey >= 0){
+                _waiting.remove(_gridKey);
+                _gridKey = -1;
+            }
+
+            Match match = _match;
+            if(match == null){
+                return;
+            }
+            _match = null;
+
+            Connection opponent = match.getOpponent(this);
+            if(opponent._match == match){
+                opponent._match = null;
+
+                if(match._game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                    opponent.send(GameProtocol.OPPONENT_LEFT, 0, 0, 0);
+                    opponent.flush();
+                }
+            }
+        }
+
+
+        // Writes the frame in the output buffer. It is sent by flush
+        // A client that doesn't read its frames fast enough to leave room for this one is disconnected
+        void send(byte type, int first, int second, int third){
+            if(!_channel.isOpen()){
+                return;
+            }
+            if(_out.remaining() < GameProtocol.FRAME_SIZE){
+                disconnect();
+                return;
+            }
+            GameProtocol.putFrame(_out, type, first, second, third);
+        }
+
+
+        // Sends as much of the output buffer as the socket accepts, and waits for the socket to be writable
+        // if some of it remains
+        void flush(){
+            if(!_channel.isOpen()){
+                return;
+            }
+
+            _out.flip();
+            try{
+                _channel.write(_out);
+            }catch(IOException e){
+                disconnect();
+                return;
+            }
+            _out.compact();
+
+            int ops = (_out.position() > 0) ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+            if(_key.interestOps() != ops){
+                _key.interestOps(ops);
+            }
+        }
+
+
+        void disconnect(){
+            if(!_channel.isOpen()){
+                return;
+            }
+
+            // The channel is closed first, so that nothing is sent to this client anymore while leaving
+            _key.cancel();
+            try{
+                _channel.close();
+            }catch(IOException e){
+                // Nothing more can be done with this connection
+            }
+
+            leave();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+
+// A game hosted by a GameSessionManager, identified by its id
+// Requests on the same session are serialized (the game engine is not thread safe), while requests on different
+// sessions run in parallel. Each request also tells the manager that the session is still in use
+// The lock is explicit, so that the evictor can skip a session busy with a request instead of waiting for it
+public class GameSession {
+
+
+    private final long _id;
+    private final TicTacToe _game;
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    // Time of the last request (System.nanoTime), and whether the session was closed or evicted
+    // Both are only accessed while holding the session lock
+    private long _lastAccessTime;
+    private boolean _closed;
+
+
+    GameSession(long id, TicTacToe game){
+        _id = id;
+        _game = game;
+        _lastAccessTime = System.nanoTime();
+    }
+
+
+    public long getId(){
+        return _id;
+    }
+
+
+    // Plays the given cell for the player who has to play
+    public TicTacToe.PLAY_RESULT playCell(int line, int column){
+        _lock.lock();
+        try{
+            touch();
+            return _game.playCell(line, column);
+        }finally{
+            _lock.unlock();
+        }
+    }
+
+    // Asks the given CPU player for a move, and plays it. Returns the cell played, or -1 if the game is finished
+    // The CPU player must not be used by another session at the same time
+    public int playCpuMove(CpuPlayer player){
+        _lock.lock();
+        try{
+            touch();
+
+            if(_game.getState() != TicTacToe.GAME_STATE.PLAYING){
+                return -1;
+            }
+
+            int move = player.chooseMove(_game);
+            _game.playCell(move / _game.getWidth(), move % _game.getWidth());
+
+            return move;
+        }finally{
+            _lock.unlock();
+        }
+    }
+
+    public boolean undo(){
+        _lock.lock();
+        try{
+            touch();
+            return _game.undo();
+        }finally{
+            _lock.unlock();
+        }
+    }
+
+    public void reset(){
+        _lock.lock();
+        try{
+            touch();
+            _game.reset();
+        }finally{
+            _lock.unlock();
+        }
+    }
+
+    public TicTacToe.GAME_STATE getState(){
+        _lock.lock();
+        try{
+            touch();
+            return _game.getState();
+        }finally{
+            _lock.unlock();
+        }
+    }
+
+    public TicTacToe.PLAYERS getCurrentPlayer(){
+        _lock.lock();
+        try{
+            touch();
+            return _game.getCurrentPlayer();
+        }finally{
+            _lock.unlock();
+        }
+    }
+
+    // Returns a copy of the grid (see TicTacToe.getGrid)
+    public int[][] getGrid(){
+        _lock.lock();
+        try{
+            touch();
+            return _game.getGrid();
+        }finally{
+            _lock.unlock();
+        }
+    }
+
+    // Copies the position of the session in the given game engine, which must have the same grid size
+    public void copyTo(TicTacToe game){
+        _lock.lock();
+        try{
+            touch();
+            game.copyFrom(_game);
+        }finally{
+            _lock.unlock();
+        }
+    }
+
+
+    // Records a request, which is refused if the session is not open anymore
+    private void touch(){
+        if(_closed){
+            throw new IllegalStateException("Game session " + _id + " is closed");
+        }
+        _lastAccessTime = System.nanoTime();
+    }
+
+
+    // Closes the session if no request was made since the given time. Returns true if it was closed
+    // A session busy with a request is in use, hence not idle: it is left open without waiting for the request
+    boolean closeIfIdleSince(long time){
+        if(!_lock.tryLock()){
+            return false;
+        }
+        try{
+            if(_closed || _lastAccessTime - time > 0){
+                return false;
+            }
+            _closed = true;
+            return true;
+        }finally{
+            _lock.unlock();
+        }
+    }
+
+    boolean close(){
+        _lock.lock();
+        try{
+            if(_closed){
+                return false;
+            }
+            _closed = true;
+            return true;
+        }finally{
+            _lock.unlock();
+        }
+    }
+}
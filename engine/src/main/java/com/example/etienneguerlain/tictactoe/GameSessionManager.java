@@ -0,0 +1,129 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+// This class hosts many game sessions at once, for a game server
+// Sessions are kept in a ConcurrentHashMap, hence creating, looking up and closing sessions never takes a global lock
+// Each session serializes its own requests
+
+// Sessions that received no request during the idle timeout are evicted by a background thread
+public class GameSessionManager {
+
+
+    // Metrics of the sessions (see Metrics)
+    private static final Metrics.Counter CREATED_COUNTER = Metrics.counter("session.created");
+    private static final Metrics.Counter CLOSED_COUNTER = Metrics.counter("session.closed");
+    private static final Metrics.Counter EVICTED_COUNTER = Metrics.counter("session.evicted");
+
+
+    private final ConcurrentHashMap<Long, GameSession> _sessions;
+    private final AtomicLong _nextId = new AtomicLong(1);
+
+    private final long _idleTimeoutNanos;
+    private final ScheduledExecutorService _evictor;
+
+
+    // Creates a manager evicting the sessions idle for the given time (in milliseconds)
+    // Idle sessions are looked for every half timeout
+    public GameSessionManager(long idleTimeoutMillis){
+
+        if(idleTimeoutMillis <= 0){
+            throw new IllegalArgumentException("Idle timeout must be positive: " + idleTimeoutMillis);
+        }
+
+        _sessions = new ConcurrentHashMap<Long, GameSession>(1024);
+        _idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+        _evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "session-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        long period = Math.max(1, idleTimeoutMillis / 2);
+        _evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdleSessions();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+
+    // Creates a session with a new game on a grid of the given size, where winLength aligned marks win
+    public GameSession create(int width, int height, int winLength){
+        GameSession session = new GameSession(_nextId.getAndIncrement(), new TicTacToe(width, height, winLength));
+
+        _sessions.put(session.getId(), session);
+        CREATED_COUNTER.add(1);
+
+        return session;
+    }
+
+
+    // Returns the session of the given id, or null if there is none (it was closed, evicted or never created)
+    public GameSession get(long id){
+        return _sessions.get(id);
+    }
+
+
+    // Closes the session of the given id. Returns false if there is none
+    public boolean close(long id){
+        GameSession session = _sessions.remove(id);
+
+        if(session == null || !session.close()){
+            return false;
+        }
+
+        CLOSED_COUNTER.add(1);
+        return true;
+    }
+
+
+    public int getSessionCount(){
+        return _sessions.size();
+    }
+
+
+    // Evicts the sessions that received no request during the idle timeout, and returns how many were evicted
+    // It is called periodically by the background thread, but may be called at any time
+    public int evictIdleSessions(){
+        long idleSince = System.nanoTime() - _idleTimeoutNanos;
+        int evicted = 0;
+
+        // The iterator of a ConcurrentHashMap doesn't block requests on other sessions
+        Iterator<GameSession> sessions = _sessions.values().iterator();
+        while(sessions.hasNext()){
+            GameSession session = sessions.next();
+
+            // A session in use while we look at it is not idle: it is skipped, and looked at again next time
+            if(session.closeIfIdleSince(idleSince)){
+                _sessions.remove(session.getId(), session);
+                evicted++;
+            }
+        }
+
+        EVICTED_COUNTER.add(evicted);
+        return evicted;
+    }
+
+
+    // Stops the eviction thread, and closes all the sessions
+    public void shutdown(){
+        _evictor.shutdownNow();
+
+        for(Long id : _sessions.keySet()){
+            close(id);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+// This CPU player runs an alpha-beta search, one move deeper at each iteration, until it reaches its depth limit or
+// has searched its budget of positions. It then plays the best move of the last finished iteration
+// Its strength is set by these two limits, and its thinking time is bounded by the budget on any grid size
+
+// Moves are played and taken back on a copy of the game engine. Positions that are not finished at the depth limit
+// are evaluated by counting the alignments each player can still complete. The best line of play (principal
+// variation) of an iteration is searched first by the next one, which makes most cuts happen early
+public class IterativeDeepeningCpuPlayer implements CpuPlayer {
+
+
+    // Score of a won position, far above any evaluation. A win found sooner scores more, so that the fastest win
+    // is preferred
+    private static final int WIN_SCORE = 1000000000;
+
+    // Value of an alignment holding marks of one player only, by number of marks (scaled to the win length)
+    private static final int[] ALIGNMENT_WEIGHTS = {0, 1, 8, 64, 512, 4096, 32768};
+
+
+    private final int _nodeBudget;
+    private final int _maxDepth;
+    private final Random _random;
+
+    // Everything below depends on the grid, and is rebuilt when a game with another grid is searched
+    private TicTacToe _game;
+    private int _width;
+    private int _height;
+
+    // Alignments of winLength cells, the alignments going through each cell, and the number of marks
+    // of each player in each alignment (updated as moves are played and taken back)
+    private int[][] _cellAlignments;
+    private int[] _alignmentMarksA;
+    private int[] _alignmentMarksB;
+    private int[] _weights;
+
+    // Evaluation of the position for player A, updated as moves are played and taken back
+    private int _evaluation;
+
+    // Legal moves at each ply, and principal variation: _pv[ply] holds the best line found from this ply,
+    // _pvLength[ply] its length. The previous iteration's line is kept in _previousPv
+    private int[][] _moves;
+    private int[][] _pv;
+    private int[] _pvLength;
+    private int[] _previousPv;
+    private int _previousPvLength;
+
+    // Positions searched during the current move, and whether the budget ran out
+    private int _nodes;
+    private boolean _aborted;
+
+
+    // Creates a player that searches at most nodeBudget positions per move, and at most maxDepth moves ahead
+    public IterativeDeepeningCpuPlayer(int nodeBudget, int maxDepth, Random random){
+        _nodeBudget = nodeBudget;
+        _maxDepth = maxDepth;
+        _random = random;
+    }
+
+
+    @Override
+    public int chooseMove(TicTacToe game){
+        prepare(game);
+
+        int emptyCount = _game.getCellCount() - _game.getMarkCount();
+        int bestMove = -1;
+        _previousPvLength = 0;
+        _nodes = 0;
+        _aborted = false;
+
+        for(int depth = 1; depth <= Math.min(_maxDepth, emptyCount); depth++){
+            int score = search(0, depth, -WIN_SCORE - 1, WIN_SCORE + 1);
+
+            // An unfinished iteration may have missed better moves: the previous one is kept
+            if(_aborted){
+                break;
+            }
+
+            bestMove = _pv[0][0];
+            _previousPvLength = _pvLength[0];
+            System.arraycopy(_pv[0], 0, _previousPv, 0, _previousPvLength);
+
+            // Once a win or a loss is proven, searching deeper won't change the move
+            if(Math.abs(score) > WIN_SCORE - _game.getCellCount()){
+                break;
+            }
+        }
+
+        // Not even the first iteration finished: any legal move is better than none
+        if(bestMove < 0){
+            _game.getLegalMoves(_moves[0]);
+            bestMove = _moves[0][0];
+        }
+
+        return bestMove;
+    }
+
+
+    // Negamax alpha-beta search, returning the score of the position for the player who has to play
+    private int search(int ply, int depth, int alpha, int beta){
+        _pvLength[ply] = 0;
+
+        if(depth == 0){
+            return (_game.getCurrentPlayer() == TicTacToe.PLAYERS.A) ? _evaluation : -_evaluation;
+        }
+
+        int[] moves = _moves[ply];
+        int count = orderMoves(ply, moves);
+        int best = -WIN_SCORE - 1;
+
+        for(int i = 0; i < count; i++){
+            if(++_nodes > _nodeBudget){
+                _aborted = true;
+                return 0;
+            }
+
+            int cell = moves[i];
+            play(cell);
+
+            // A finished game has no line of play after this move: the one left by a previous move is dropped
+            int score;
+            if(_game.getState() == TicTacToe.GAME_STATE.TIE){
+                score = 0;
+                _pvLength[ply + 1] = 0;
+            }else if(_game.getState() != TicTacToe.GAME_STATE.PLAYING){
+                // Only the player who just played can have won
+                score = WIN_SCORE - ply;
+                _pvLength[ply + 1] = 0;
+            }else{
+                score = -search(ply + 1, depth - 1, -beta, -alpha);
+            }
+
+            undo(cell);
+
+            if(_aborted){
+                return 0;
+            }
+
+            if(score > best){
+                best = score;
+
+                // The line of play from this ply is this move, followed by the best line of the next ply
+                _pv[ply][0] = cell;
+                System.arraycopy(_pv[ply + 1], 0, _pv[ply], 1, _pvLength[ply + 1]);
+                _pvLength[ply] = _pvLength[ply + 1] + 1;
+            }
+            if(best > alpha){
+                alpha = best;
+            }
+            if(alpha >= beta){
+                break;
+            }
+        }
+
+        return best;
+    }
+
+
+    // Writes the moves to search at the given ply, and returns their number
+    // The move of the previous principal variation comes first, then the cells next to marks (center of the grid
+    // if it is empty): on big grids, far away cells are not worth searching
+    private int orderMoves(int ply, int[] moves){
+
+        if(_game.getMarkCount() == 0){
+            moves[0] = (_height / 2) * _width + _width / 2;
+            return 1;
+        }
+
+        int legalCount = _game.getLegalMoves(moves);
+        int count = 0;
+        for(int i = 0; i < legalCount; i++){
+            if(hasMarkedNeighbour(moves[i])){
+                moves[count++] = moves[i];
+            }
+        }
+
+        // The root moves are shuffled, so that moves of equal score are not always played in the same order
+        if(ply == 0){
+            for(int i = count - 1; i > 0; i--){
+                swap(moves, i, _random.nextInt(i + 1));
+            }
+        }
+
+        if(ply < _previousPvLength && isOnPreviousPv(ply)){
+            for(int i = 0; i < count; i++){
+                if(moves[i] == _previousPv[ply]){
+                    swap(moves, 0, i);
+                    break;
+                }
+            }
+        }
+
+        return count;
+    }
+
+
+    private static void swap(int[] moves, int i, int j){
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+
+
+    // Tells if the moves played since the root are those of the previous principal variation
+    private boolean isOnPreviousPv(int ply){
+        int rootMoveCount = _game.getMoveCount() - ply;
+
+        for(int i = 0; i < ply; i++){
+            if(_game.getMove(rootMoveCount + i) != _previousPv[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private boolean hasMarkedNeighbour(int cell){
+        int line = cell / _width;
+        int column = cell % _width;
+
+        for(int i = Math.max(0, line - 1); i <= Math.min(_height - 1, line + 1); i++){
+            for(int j = Math.max(0, column - 1); j <= Math.min(_width - 1, column + 1); j++){
+                if(_game.getCell(i, j) != 0){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    // Plays the move, and updates the evaluation with the alignments going through its cell
+    private void play(int cell){
+        boolean playerA = (_game.getCurrentPlayer() == TicTacToe.PLAYERS.A);
+
+        for(int alignment : _cellAlignments[cell]){
+            _evaluation -= alignmentValue(alignment);
+            if(playerA){
+                _alignmentMarksA[alignment]++;
+            }else{
+                _alignmentMarksB[alignment]++;
+            }
+            _evaluation += alignmentValue(alignment);
+        }
+
+        _game.playCell(cell / _width, cell % _width);
+    }
+
+
+    private void undo(int cell){
+        _game.undo();
+        boolean playerA = (_game.getCurrentPlayer() == TicTacToe.PLAYERS.A);
+
+        for(int alignment : _cellAlignments[cell]){
+            _evaluation -= alignmentValue(alignment);
+            if(playerA){
+                _alignmentMarksA[alignment]--;
+            }else{
+                _alignmentMarksB[alignment]--;
+            }
+            _evaluation += alignmentValue(alignment);
+        }
+    }
+
+
+    // An alignment holding marks of both players can't be completed anymore: it is worth nothing
+    private int alignmentValue(int alignment){
+        int marksA = _alignmentMarksA[alignment];
+        int marksB = _alignmentMarksB[alignment];
+
+        if(marksA > 0 && marksB > 0){
+            return 0;
+        }
+        return (marksA > 0) ? _weights[marksA] : -_weights[marksB];
+    }
+
+
+    // Copies the game to search, rebuilding the alignments if the grid changed, and computes the evaluation
+    private void prepare(TicTacToe game){
+
+        if(_game == null || _game.getWidth() != game.getWidth() || _game.getHeight() != game.getHeight()
+                || _game.getWinLength() != game.getWinLength()){
+            _game = new TicTacToe(game.getWidth(), game.getHeight(), game.getWinLength());
+            _width = game.getWidth();
+            _height = game.getHeight();
+            buildAlignments(game.getWinLength());
+
+            int cellCount = game.getCellCount();
+            _moves = new int[cellCount + 1][cellCount];
+            _pv = new int[cellCount + 1][cellCount];
+            _pvLength = new int[cellCount + 1];
+            _previousPv = new int[cellCount];
+        }
+
+        _game.copyFrom(game);
+
+        Arrays.fill(_alignmentMarksA, 0);
+        Arrays.fill(_alignmentMarksB, 0);
+        for(int cell = 0; cell < _game.getCellCount(); cell++){
+            int mark = _game.getCell(cell / _width, cell % _width);
+
+            for(int alignment : _cellAlignments[cell]){
+                if(mark == 1){
+                    _alignmentMarksA[alignment]++;
+                }else if(mark == 3){
+                    _alignmentMarksB[alignment]++;
+                }
+            }
+        }
+
+        _evaluation = 0;
+        for(int alignment = 0; alignment < _alignmentMarksA.length; alignment++){
+            _evaluation += alignmentValue(alignment);
+        }
+    }
+
+
+    // Builds the alignments of winLength cells in the four directions, and the weights of their marks
+    private void buildAlignments(int winLength){
+        int[] directions = {0, 1, 1, 0, 1, 1, 1, -1};
+        int cellCount = _width * _height;
+
+        int[] alignmentCounts = new int[cellCount];
+        int[] firstCells = new int[4 * cellCount];
+        int[] steps = new int[4 * cellCount];
+        int count = 0;
+
+        for(int d = 0; d < directions.length; d += 2){
+            for(int line = 0; line < _height; line++){
+                for(int column = 0; column < _width; column++){
+                    int lastLine = line + directions[d] * (winLength - 1);
+                    int lastColumn = column + directions[d + 1] * (winLength - 1);
+                    if(lastLine >= _height || lastColumn < 0 || lastColumn >= _width){
+                        continue;
+                    }
+
+                    firstCells[count] = line * _width + column;
+                    steps[count] = directions[d] * _width + directions[d + 1];
+                    for(int i = 0; i < winLength; i++){
+                        alignmentCounts[firstCells[count] + i * steps[count]]++;
+                    }
+                    count++;
+                }
+            }
+        }
+
+        _cellAlignments = new int[cellCount][];
+        for(int cell = 0; cell < cellCount; cell++){
+            _cellAlignments[cell] = new int[alignmentCounts[cell]];
+            alignmentCounts[cell] = 0;
+        }
+        for(int alignment = 0; alignment < count; alignment++){
+            for(int i = 0; i < winLength; i++){
+                int cell = firstCells[alignment] + i * steps[alignment];
+                _cellAlignments[cell][alignmentCounts[cell]++] = alignment;
+            }
+        }
+
+        _alignmentMarksA = new int[count];
+        _alignmentMarksB = new int[count];
+
+        // A complete alignment ends the game, hence it is never evaluated. The weights grow with the number of marks
+        // still needed: an alignment missing one mark is worth the most, whatever the win length
+        _weights = new int[winLength + 1];
+        for(int marks = 1; marks < winLength; marks++){
+            int missing = winLength - marks;
+            _weights[marks] = ALIGNMENT_WEIGHTS[Math.max(1, ALIGNMENT_WEIGHTS.length - missing)];
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+// This class keeps the history of all the games played on the device, and their lifetime totals
+
+// Finished games are appended to a log file, as fixed-width entries (the time the game ended, and its GameRecord)
+// Lifetime totals are kept in a small index file, mapped in memory, so that they are read without going through
+// the log. Since entries have a fixed width, the last games are read directly at the end of the log
+
+// Games are not written at once: they are gathered, and written by batches on a background thread
+// Opening, flushing and closing the history go to the disk, hence they should not be called from the UI thread
+// A history is shared by all the holders of the same directory: each call to open must be matched by a call
+// to close, and the files are closed by the last one
+public class MatchHistory implements Closeable {
+
+
+    public static final String LOG_FILE_NAME = "history.log";
+    public static final String INDEX_FILE_NAME = "history.idx";
+
+    // Size of a log entry: time (in milliseconds) and game record
+    private static final int ENTRY_SIZE = 16;
+
+    // Layout of the index file: magic number, number of games, then the number of games won by A, won by B and tied
+    private static final int MAGIC = 0x54544831;    // "TTH1"
+    private static final int COUNT_OFFSET = 8;
+    private static final int TOTALS_OFFSET = 16;
+    private static final int INDEX_SIZE = TOTALS_OFFSET + 3 * 8;
+
+    // Games are written at most this long after they were appended, so that games ending close together
+    // are written at once
+    private static final long FLUSH_DELAY_MILLISECONDS = 500;
+
+
+    // Instances opened in this process, by directory
+    private static final Map<File, MatchHistory> _instances = new HashMap<File, MatchHistory>();
+
+
+    private final File _directory;
+    private final FileChannel _log;
+    private final RandomAccessFile _indexFile;
+    private final MappedByteBuffer _index;
+
+    // Number of holders that opened this instance and didn't close it yet (guarded by MatchHistory.class)
+    private int _openCount;
+
+    // Writes the batches, one at a time
+    private final ScheduledExecutorService _writer;
+
+    private final Runnable _writeTask = new Runnable() {
+        @Override
+        public void run() {
+            writePending();
+        }
+    };
+
+    // Games appended but not written yet (time and record of each game, one after the other)
+    private long[] _pending = new long[64];
+    private int _pendingCount;
+
+    // Lifetime totals, including the games not written yet (indexed by GAME_STATE ordinal)
+    private final long[] _totals = new long[TicTacToe.GAME_STATE.values().length];
+    private long _gameCount;
+
+    // Error of the last batch that could not be written, thrown by the next flush (guarded by this)
+    private IOException _writeFailure;
+
+
+    // Opens the history stored in the given directory, creating it if needed
+    // The same instance is returned for the same directory, until all its holders closed it
+    // The whole log may be read to rebuild the index: it should not be called from the UI thread
+    public static synchronized MatchHistory open(File directory) throws IOException {
+        File key = directory.getCanonicalFile();
+        MatchHistory history = _instances.get(key);
+
+        if(history == null){
+            history = new MatchHistory(key);
+            _instances.put(key, history);
+        }
+
+        history._openCount++;
+        return history;
+    }
+
+
+    private MatchHistory(File directory) throws IOException {
+        _directory = directory;
+        _log = new RandomAccessFile(new File(directory, LOG_FILE_NAME), "rw").getChannel();
+        _indexFile = new RandomAccessFile(new File(directory, INDEX_FILE_NAME), "rw");
+        _index = _indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, INDEX_SIZE);
+
+        // An incomplete entry at the end of the log (the application was killed while writing) is dropped
+        long entries = _log.size() / ENTRY_SIZE;
+        _log.truncate(entries * ENTRY_SIZE);
+        _log.position(entries * ENTRY_SIZE);
+
+        // The index is rebuilt from the log if it doesn't match it (new history, or interrupted batch)
+        if(_index.getInt(0) != MAGIC || _index.getLong(COUNT_OFFSET) != entries){
+            rebuildIndex(entries);
+        }
+
+        _gameCount = _index.getLong(COUNT_OFFSET);
+        _totals[TicTacToe.GAME_STATE.A_WON.ordinal()] = _index.getLong(TOTALS_OFFSET);
+        _totals[TicTacToe.GAME_STATE.B_WON.ordinal()] = _index.getLong(TOTALS_OFFSET + 8);
+        _totals[TicTacToe.GAME_STATE.TIE.ordinal()] = _index.getLong(TOTALS_OFFSET + 16);
+
+        _writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "match-history");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    // Counts the games of the whole log, and writes the totals in the index
+    private void rebuildIndex(long entries) throws IOException {
+        long aWon = 0;
+        long bWon = 0;
+        long tie = 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * 1024);
+        long position = 0;
+
+        while(position < entries * ENTRY_SIZE){
+            buffer.clear();
+            int read = _log.read(buffer, position);
+            if(read <= 0){
+                break;
+            }
+            position += read - read % ENTRY_SIZE;
+            buffer.flip();
+
+            while(buffer.remaining() >= ENTRY_SIZE){
+                buffer.getLong();
+                switch (GameRecord.getState(buffer.getLong())){
+                    case A_WON:
+                        aWon++;
+                        break;
+                    case B_WON:
+                        bWon++;
+                        break;
+                    case TIE:
+                        tie++;
+                        break;
+                }
+            }
+        }
+
+        writeIndex(entries, aWon, bWon, tie);
+    }
+
+
+    private void writeIndex(long gameCount, long aWon, long bWon, long tie){
+        _index.putInt(0, MAGIC);
+        _index.putLong(TOTALS_OFFSET, aWon);
+        _index.putLong(TOTALS_OFFSET + 8, bWon);
+        _index.putLong(TOTALS_OFFSET + 16, tie);
+
+        // The count is written last: if the application is killed before, the index is rebuilt at next opening
+        _index.putLong(COUNT_OFFSET, gameCount);
+    }
+
+
+
+    // Appends a finished game (see GameRecord) to the history. It returns at once: the game is written later,
+    // on a background thread, with the other games appended in the meantime
+    public void append(long record){
+        boolean firstPending;
+
+        synchronized (this){
+            if(_pendingCount + 2 > _pending.length){
+                long[] pending = new long[_pending.length * 2];
+                System.arraycopy(_pending, 0, pending, 0, _pendingCount);
+                _pending = pending;
+            }
+
+            _pending[_pendingCount++] = System.currentTimeMillis();
+            _pending[_pendingCount++] = record;
+            firstPending = (_pendingCount == 2);
+
+            _gameCount++;
+            _totals[GameRecord.getState(record).ordinal()]++;
+        }
+
+        // The first game of a batch schedules the writing of the whole batch
+        // (a flush meanwhile writes it at once, and the scheduled writing then finds nothing to write)
+        if(firstPending){
+            _writer.schedule(_writeTask, FLUSH_DELAY_MILLISECONDS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    // Writes the games appended but not written yet, and updates the index
+    private void writePending(){
+        long[] pending;
+        int pendingCount;
+        long gameCount;
+        long aWon;
+        long bWon;
+        long tie;
+
+        synchronized (this){
+            pending = _pending;
+            pendingCount = _pendingCount;
+            _pending = new long[pending.length];
+            _pendingCount = 0;
+
+            gameCount = _gameCount;
+            aWon = _totals[TicTacToe.GAME_STATE.A_WON.ordinal()];
+            bWon = _totals[TicTacToe.GAME_STATE.B_WON.ordinal()];
+            tie = _totals[TicTacToe.GAME_STATE.TIE.ordinal()];
+        }
+
+        if(pendingCount == 0){
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(pendingCount * 8);
+        for(int i = 0; i < pendingCount; i++){
+            buffer.putLong(pending[i]);
+        }
+        buffer.flip();
+
+        try{
+            synchronized (_log){
+                while(buffer.hasRemaining()){
+                    _log.write(buffer);
+                }
+                writeIndex(gameCount, aWon, bWon, tie);
+            }
+        }catch(IOException e){
+            // The batch is lost. If it was partly written, the log doesn't match the index anymore, and the totals
+            // are rebuilt at next opening
+            synchronized (this){
+                _writeFailure = e;
+            }
+        }
+    }
+
+
+
+    // Number of games of the history
+    public synchronized long getGameCount(){
+        return _gameCount;
+    }
+
+    // Number of games of the history that ended with the given state (A_WON, B_WON or TIE)
+    public synchronized long getCount(TicTacToe.GAME_STATE state){
+        return _totals[state.ordinal()];
+    }
+
+
+    // Reads the records of the last games (see GameRecord) in the given array, the most recent game last,
+    // and returns how many were read. The games appended but not written yet are written first
+    // This method reads the log file: it should not be called from the UI thread
+    public int readRecentGames(long[] records) throws IOException {
+        flush();
+
+        synchronized (_log){
+            long entries = _log.size() / ENTRY_SIZE;
+            int count = (int) Math.min(records.length, entries);
+
+            ByteBuffer buffer = ByteBuffer.allocate(count * ENTRY_SIZE);
+            long position = (entries - count) * ENTRY_SIZE;
+            while(buffer.hasRemaining()){
+                int read = _log.read(buffer, position + buffer.position());
+                if(read < 0){
+                    throw new IOException("Match history log is shorter than expected");
+                }
+            }
+            buffer.flip();
+
+            for(int i = 0; i < count; i++){
+                buffer.getLong();
+                records[i] = buffer.getLong();
+            }
+
+            return count;
+        }
+    }
+
+
+    // Starts writing the games appended but not written yet, without waiting for the batch delay, and returns at once
+    // It can be called when the application goes to the background, so that no game is lost if the process is killed
+    public void startFlush(){
+        _writer.execute(_writeTask);
+    }
+
+
+    // Writes the games appended but not written yet, and waits until they are written
+    // Throws the error of the last batch that could not be written, if any since the last flush
+    // This method writes in the files: it should not be called from the UI thread
+    public void flush() throws IOException {
+        try{
+            _writer.submit(_writeTask).get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }catch(ExecutionException e){
+            throw new IllegalStateException("Unable to write the match history", e.getCause());
+        }
+
+        IOException failure;
+        synchronized (this){
+            failure = _writeFailure;
+            _writeFailure = null;
+        }
+        if(failure != null){
+            throw failure;
+        }
+    }
+
+
+    // Writes the last games. The files are closed once every holder closed the history
+    @Override
+    public void close() throws IOException {
+        boolean last;
+
+        synchronized (MatchHistory.class){
+            if(_openCount == 0){
+                return;
+            }
+
+            last = (--_openCount == 0);
+            if(last){
+                _instances.remove(_directory);
+            }
+        }
+
+        if(!last){
+            flush();
+            return;
+        }
+
+        // The files are closed even if the last games can't be written
+        try{
+            flush();
+        }finally{
+            // Every game is written: the scheduled batches have nothing left to write
+            _writer.shutdownNow();
+
+            synchronized (_log){
+                _index.force();
+                _log.close();
+                _indexFile.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+// This CPU player chooses its move with a Monte Carlo Tree Search (UCT): it plays many random games
+// (referred as "playouts") from the current position, and grows a tree towards the most promising moves
+
+// The search is spread over several threads, each one growing its own tree from the same position
+// ("root parallelization"). The visits of the root moves are then added up, and the most visited move is played
+// Its strength only depends on the given budget: a duration, or a number of playouts
+
+// A search can't run while another one is running on the same instance
+public class MctsCpuPlayer implements CpuPlayer {
+
+
+    // Exploration constant of the UCT formula (square root of 2)
+    private static final double EXPLORATION = 1.41421356;
+
+    // Number of nodes of all the trees together, whatever the grid size and the number of threads: a node takes
+    // 20 bytes, hence the trees never take more than 10MB. Each thread gets its share of them
+    // Trees start small and grow as needed, up to their share. Once it is reached, playouts go on without growing
+    // the tree
+    private static final int MAX_NODES = 1 << 19;
+    private static final int INITIAL_NODES = 1 << 12;
+
+    // The clock is read every TIME_CHECK_INTERVAL playouts
+    private static final int TIME_CHECK_INTERVAL = 32;
+
+
+    private final long _timeBudgetNanos;
+    private final int _playoutBudget;
+
+    // One worker (tree and game engine) per thread, kept from one search to the next
+    private final Worker[] _workers;
+    private final ExecutorService _executor;
+
+    private final List<Future<Void>> _futures;
+
+    // Set to stop all the workers at once, when the search is cancelled or fails
+    private final AtomicBoolean _stopped = new AtomicBoolean();
+
+
+    // Creates a player that searches during the given duration (in milliseconds) on the given number of threads
+    public static MctsCpuPlayer withTimeBudget(long milliseconds, int threadCount){
+        return new MctsCpuPlayer(milliseconds * 1000000L, 0, threadCount);
+    }
+
+
+    // Creates a player that runs the given number of playouts in total, spread over the given number of threads
+    public static MctsCpuPlayer withPlayoutBudget(int playouts, int threadCount){
+        return new MctsCpuPlayer(0, playouts, threadCount);
+    }
+
+
+    private MctsCpuPlayer(long timeBudgetNanos, int playoutBudget, int threadCount){
+
+        if(threadCount < 1){
+            throw new IllegalArgumentException("At least one thread is needed: " + threadCount);
+        }
+
+        _timeBudgetNanos = timeBudgetNanos;
+        _playoutBudget = playoutBudget;
+
+        _workers = new Worker[threadCount];
+        _futures = new ArrayList<Future<Void>>(threadCount);
+
+        // With a single thread, the search runs on the calling thread
+        _executor = (threadCount == 1) ? null : Executors.newFixedThreadPool(threadCount - 1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "mcts-worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    @Override
+    public int chooseMove(TicTacToe game){
+
+        long deadline = System.nanoTime() + _timeBudgetNanos;
+
+        // Each worker copies the position, and gets its share of the playouts
+        for(int i = 0; i < _workers.length; i++){
+
+            if(_workers[i] == null || !_workers[i].handles(game)){
+                // There is always room to expand the root
+                int maxNodes = Math.max(MAX_NODES / _workers.length, game.getCellCount() + 1);
+                _workers[i] = new Worker(game.getWidth(), game.getHeight(), game.getWinLength(), maxNodes,
+                        new Random(), _stopped);
+            }
+
+            int playouts = (_playoutBudget == 0) ? 0 : Math.max(1, _playoutBudget / _workers.length
+                    + ((i < _playoutBudget % _workers.length) ? 1 : 0));
+
+            _workers[i].prepare(game, deadline, playouts);
+        }
+
+        // The first worker runs on the calling thread, the others on the executor
+        _stopped.set(false);
+        _futures.clear();
+        for(int i = 1; i < _workers.length; i++){
+            _futures.add(_executor.submit(_workers[i]));
+        }
+
+        boolean completed = false;
+        try{
+            _workers[0].call();
+            completed = !Thread.currentThread().isInterrupted();
+        }finally{
+            // If the calling thread was interrupted (the move was cancelled) or its search failed,
+            // the other workers are stopped at once
+            if(!completed){
+                _stopped.set(true);
+            }
+            awaitWorkers();
+        }
+
+        // The visits of each root move are added up over all the trees
+        int bestMove = -1;
+        long bestVisits = -1;
+
+        for(int c = 0; c < _workers[0].rootChildCount(); c++){
+            long visits = 0;
+            for(Worker worker : _workers){
+                visits += worker.rootChildVisits(c);
+            }
+
+            if(visits > bestVisits){
+                bestVisits = visits;
+                bestMove = _workers[0].rootChildMove(c);
+            }
+        }
+
+        return bestMove;
+    }
+
+
+    // Waits until all the workers running on the executor are finished, since the next search reuses their trees
+    // If the calling thread is interrupted meanwhile, the workers are stopped, and the interrupt is kept
+    private void awaitWorkers(){
+        boolean interrupted = false;
+        Throwable failure = null;
+
+        for(Future<Void> future : _futures){
+            while(true){
+                try{
+                    future.get();
+                    break;
+                }catch(InterruptedException e){
+                    interrupted = true;
+                    _stopped.set(true);
+                }catch(ExecutionException e){
+                    if(failure == null){
+                        failure = e.getCause();
+                    }
+                    _stopped.set(true);
+                    break;
+                }
+            }
+        }
+
+        if(interrupted){
+            Thread.currentThread().interrupt();
+        }
+        if(failure != null){
+            throw new RuntimeException("Search failed", failure);
+        }
+    }
+
+
+    // Stops the threads of the search. The player can't be used afterwards
+    public void shutdown(){
+        if(_executor != null){
+            _executor.shutdownNow();
+        }
+    }
+
+
+
+    // A worker grows one search tree. The tree is stored in arrays indexed by node number (the root is node 0),
+    // and the children of a node are created all at once, in consecutive nodes
+    private static class Worker implements Callable<Void> {
+
+        private final TicTacToe _game;
+        private final Random _random;
+        private final AtomicBoolean _stopped;
+
+        private int[] _move;          // Cell played to reach the node
+        private int[] _firstChild;
+        private int[] _childCount;    // 0 while the node is not expanded
+        private int[] _visits;
+        private float[] _wins;        // For the player who played the node move
+        private int _nodeCount;
+        private final int _maxNodes;
+
+        // Nodes from the root to the current node, and buffer receiving the legal moves
+        private final int[] _path;
+        private final int[] _legalMoves;
+
+        private long _deadline;
+        private int _playouts;
+
+
+        Worker(int width, int height, int winLength, int maxNodes, Random random, AtomicBoolean stopped){
+            _game = new TicTacToe(width, height, winLength);
+            _random = random;
+            _stopped = stopped;
+            _maxNodes = maxNodes;
+            grow(Math.min(INITIAL_NODES, maxNodes));
+            _path = new int[_game.getCellCount() + 1];
+            _legalMoves = new int[_game.getCellCount()];
+        }
+
+
+        boolean handles(TicTacToe game){
+            return game.getWidth() == _game.getWidth() && game.getHeight() == _game.getHeight()
+                    && game.getWinLength() == _game.getWinLength();
+        }
+
+
+        // Copies the position to search, and starts a new tree with the root expanded
+        void prepare(TicTacToe game, long deadline, int playouts){
+            _game.copyFrom(game);
+            _deadline = deadline;
+            _playouts = playouts;
+
+            _nodeCount = 1;
+            _visits[0] = 0;
+            _wins[0] = 0;
+            _childCount[0] = 0;
+            expand(0);
+        }
+
+
+        int rootChildCount(){
+            return _childCount[0];
+        }
+
+        int rootChildMove(int child){
+            return _move[_firstChild[0] + child];
+        }
+
+        int rootChildVisits(int child){
+            return _visits[_firstChild[0] + child];
+        }
+
+
+        @Override
+        public Void call(){
+            TicTacToe.PLAYERS rootPlayer = _game.getCurrentPlayer();
+
+            for(int i = 1; ; i++){
+
+                if(_playouts > 0 ? i > _playouts : (i % TIME_CHECK_INTERVAL == 0 && System.nanoTime() > _deadline)){
+                    return null;
+                }
+                if(_stopped.get() || Thread.currentThread().isInterrupted()){
+                    return null;
+                }
+
+                // Selection: we go down the tree, following the best UCT value
+                int node = 0;
+                int depth = 0;
+                _path[depth++] = 0;
+
+                while(_childCount[node] > 0){
+                    node = selectChild(node);
+                    play(_move[node]);
+                    _path[depth++] = node;
+                }
+
+                // Expansion: a node is expanded on its second visit, and one of its children is tried
+                if(_game.getState() == TicTacToe.GAME_STATE.PLAYING && _visits[node] > 0 && expand(node)){
+                    node = _firstChild[node] + _random.nextInt(_childCount[node]);
+                    play(_move[node]);
+                    _path[depth++] = node;
+                }
+
+                // Simulation: the game is played randomly until its end
+                int playoutMoves = 0;
+                while(_game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                    int count = _game.getLegalMoves(_legalMoves);
+                    play(_legalMoves[_random.nextInt(count)]);
+                    playoutMoves++;
+                }
+
+                TicTacToe.GAME_STATE result = _game.getState();
+
+                // The position is set back to the root
+                for(int k = playoutMoves + depth - 1; k > 0; k--){
+                    _game.undo();
+                }
+
+                // Backpropagation: the nodes at odd depth were played by the root player
+                for(int k = depth - 1; k >= 0; k--){
+                    TicTacToe.PLAYERS mover = ((k & 1) == 1) ? rootPlayer : other(rootPlayer);
+                    _visits[_path[k]]++;
+                    _wins[_path[k]] += reward(result, mover);
+                }
+            }
+        }
+
+
+        // Creates the children of a node, one per legal move. Returns false if there is not enough room left
+        private boolean expand(int node){
+            int count = _game.getLegalMoves(_legalMoves);
+
+            if(count == 0 || _nodeCount + count > _maxNodes){
+                return false;
+            }
+            if(_nodeCount + count > _move.length){
+                grow(Math.min(_maxNodes, Math.max(_move.length * 2, _nodeCount + count)));
+            }
+
+            _firstChild[node] = _nodeCount;
+            for(int c = 0; c < count; c++){
+                int child = _nodeCount + c;
+                _move[child] = _legalMoves[c];
+                _childCount[child] = 0;
+                _visits[child] = 0;
+                _wins[child] = 0;
+            }
+
+            _nodeCount += count;
+            _childCount[node] = count;
+            return true;
+        }
+
+
+        private void grow(int nodes){
+            if(_move == null){
+                _move = new int[nodes];
+                _firstChild = new int[nodes];
+                _childCount = new int[nodes];
+                _visits = new int[nodes];
+                _wins = new float[nodes];
+                return;
+            }
+
+            _move = Arrays.copyOf(_move, nodes);
+            _firstChild = Arrays.copyOf(_firstChild, nodes);
+            _childCount = Arrays.copyOf(_childCount, nodes);
+            _visits = Arrays.copyOf(_visits, nodes);
+            _wins = Arrays.copyOf(_wins, nodes);
+        }
+
+
+        // Returns the child with the best UCT value (a child that was never visited is chosen first)
+        private int selectChild(int node){
+            double logVisits = Math.log(_visits[node] + 1);
+            int best = _firstChild[node];
+            double bestValue = Double.NEGATIVE_INFINITY;
+
+            for(int child = _firstChild[node]; child < _firstChild[node] + _childCount[node]; child++){
+
+                if(_visits[child] == 0){
+                    return child;
+                }
+
+                double value = _wins[child] / _visits[child] + EXPLORATION * Math.sqrt(logVisits / _visits[child]);
+                if(value > bestValue){
+                    bestValue = value;
+                    best = child;
+                }
+            }
+
+            return best;
+        }
+
+
+        private void play(int cell){
+            _game.playCell(cell / _game.getWidth(), cell % _game.getWidth());
+        }
+    }
+
+
+    private static TicTacToe.PLAYERS other(TicTacToe.PLAYERS player){
+        return (player == TicTacToe.PLAYERS.A) ? TicTacToe.PLAYERS.B : TicTacToe.PLAYERS.A;
+    }
+
+
+    // Result of a finished game for the given player: 1 for a victory, 0.5 for a tie and 0 for a defeat
+    private static float reward(TicTacToe.GAME_STATE result, TicTacToe.PLAYERS player){
+
+        if(result == TicTacToe.GAME_STATE.TIE){
+            return 0.5f;
+        }
+
+        return ((result == TicTacToe.GAME_STATE.A_WON) == (player == TicTacToe.PLAYERS.A)) ? 1 : 0;
+    }
+}
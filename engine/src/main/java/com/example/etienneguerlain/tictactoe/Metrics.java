@@ -0,0 +1,349 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+// This class keeps counters and latency histograms of the game engine and CPU players, by name
+// (e.g. how long CPU moves take in each mode, how many cells were played, how games end)
+
+// Metrics are disabled by default: counting then costs a single test of a flag. Once enabled, they are updated
+// without locking, and a snapshot of all of them can be taken at any time, to be displayed or dumped
+// Hot paths (like playing a cell) should not update a metric each time, but count locally and add by batches
+public class Metrics {
+
+
+    // Names of the metrics updated by the engine (PLAY_CELL counts the cells played, PLAY_CELL_REJECTED the moves
+    // refused by the engine)
+    public static final String PLAY_CELL = "engine.playCell";
+    public static final String PLAY_CELL_REJECTED = "engine.playCell.rejected";
+    public static final String CPU_MOVE = "cpu.move.";
+    public static final String GAME_OUTCOME = "game.outcome.";
+
+
+    private static volatile boolean _enabled = Boolean.getBoolean("tictactoe.metrics");
+
+    // Number of stripes of each counter: the number of cores, rounded up to a power of 2
+    private static final int STRIPES = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private static final ConcurrentHashMap<String, Counter> _counters = new ConcurrentHashMap<String, Counter>();
+    private static final ConcurrentHashMap<String, Histogram> _histograms = new ConcurrentHashMap<String, Histogram>();
+
+    // Counters of game outcomes, indexed by mode, hand and final state, so that no name is built when a game ends
+    private static final Counter[] _outcomes;
+
+    static {
+        Settings.MODES[] modes = Settings.MODES.values();
+        Settings.HAND[] hands = Settings.HAND.values();
+        TicTacToe.GAME_STATE[] states = TicTacToe.GAME_STATE.values();
+
+        _outcomes = new Counter[modes.length * hands.length * states.length];
+
+        for(Settings.MODES mode : modes){
+            for(Settings.HAND hand : hands){
+                for(TicTacToe.GAME_STATE state : states){
+                    _outcomes[outcomeIndex(mode, hand, state)] = counter(GAME_OUTCOME + mode + "." + hand + "." + state);
+                }
+            }
+        }
+    }
+
+
+    private Metrics(){
+    }
+
+
+    public static boolean isEnabled(){
+        return _enabled;
+    }
+
+    public static void setEnabled(boolean enabled){
+        _enabled = enabled;
+    }
+
+
+    // Returns the counter of the given name, creating it at first call
+    // Metrics are meant to be looked up once, and kept in a field
+    public static Counter counter(String name){
+        Counter counter = _counters.get(name);
+
+        if(counter == null){
+            Counter created = new Counter();
+            counter = _counters.putIfAbsent(name, created);
+            if(counter == null){
+                counter = created;
+            }
+        }
+
+        return counter;
+    }
+
+
+    // Returns the latency histogram of the given name, creating it at first call
+    public static Histogram histogram(String name){
+        Histogram histogram = _histograms.get(name);
+
+        if(histogram == null){
+            Histogram created = new Histogram();
+            histogram = _histograms.putIfAbsent(name, created);
+            if(histogram == null){
+                histogram = created;
+            }
+        }
+
+        return histogram;
+    }
+
+
+    // Counts a finished game, where the CPU played in the given mode and the first player was chosen by the given hand
+    public static void countGame(Settings.MODES mode, Settings.HAND hand, TicTacToe.GAME_STATE state){
+        if(_enabled){
+            _outcomes[outcomeIndex(mode, hand, state)].add(1);
+        }
+    }
+
+    private static int outcomeIndex(Settings.MODES mode, Settings.HAND hand, TicTacToe.GAME_STATE state){
+        return (mode.ordinal() * Settings.HAND.values().length + hand.ordinal()) * TicTacToe.GAME_STATE.values().length + state.ordinal();
+    }
+
+
+    // Takes a snapshot of all the metrics. Metrics updated meanwhile may be seen partly updated
+    public static Snapshot snapshot(){
+        Map<String, Long> counters = new TreeMap<String, Long>();
+        Map<String, HistogramSnapshot> histograms = new TreeMap<String, HistogramSnapshot>();
+
+        for(Map.Entry<String, Counter> entry : _counters.entrySet()){
+            counters.put(entry.getKey(), entry.getValue().get());
+        }
+        for(Map.Entry<String, Histogram> entry : _histograms.entrySet()){
+            histograms.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        return new Snapshot(counters, histograms);
+    }
+
+
+    // Sets all the metrics back to 0
+    public static void reset(){
+        for(Counter counter : _counters.values()){
+            counter.reset();
+        }
+        for(Histogram histogram : _histograms.values()){
+            histogram.reset();
+        }
+    }
+
+
+
+    // A value that only grows, until it is reset
+    // It is split in stripes, and each thread adds to the stripe of its id, so that threads counting at the same time
+    // don't fight over a single cache line (LongAdder does the same, but only exists from Android 7). The stripes
+    // are added up when the value is read
+    public static final class Counter {
+
+        // Longs between two stripes, so that each one has its own 64 bytes cache line
+        private static final int PADDING = 8;
+
+        private final AtomicLongArray _stripes = new AtomicLongArray(STRIPES * PADDING);
+
+        private Counter(){
+        }
+
+        public void add(long delta){
+            if(_enabled){
+                _stripes.addAndGet(((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING, delta);
+            }
+        }
+
+        public long get(){
+            long value = 0;
+            for(int s = 0; s < STRIPES; s++){
+                value += _stripes.get(s * PADDING);
+            }
+            return value;
+        }
+
+        void reset(){
+            for(int s = 0; s < STRIPES; s++){
+                _stripes.set(s * PADDING, 0);
+            }
+        }
+    }
+
+
+
+    // Distribution of durations, in nanoseconds
+    // Durations are counted in buckets of powers of 2: bucket b holds durations from 2^(b-1) (included) to 2^b (excluded)
+    // Like counters, histograms are split in stripes, one per thread id. Each stripe holds its buckets, then the sum
+    // and the maximum of its durations (the number of durations is the sum of the buckets)
+    public static final class Histogram {
+
+        private static final int BUCKETS = 64;
+        private static final int SUM = BUCKETS;
+        private static final int MAX = BUCKETS + 1;
+
+        // Longs per stripe, rounded up to whole 64 bytes cache lines
+        private static final int STRIDE = (MAX + 1 + 7) & ~7;
+
+        private final AtomicLongArray _stripes = new AtomicLongArray(STRIPES * STRIDE);
+
+        private Histogram(){
+        }
+
+        // Returns the current time, to be given back to record() once the measured operation is done
+        // (0 if metrics are disabled, so that the clock is not even read)
+        public long start(){
+            return _enabled ? System.nanoTime() : 0;
+        }
+
+        public void record(long startTime){
+            if(_enabled && startTime != 0){
+                recordDuration(System.nanoTime() - startTime);
+            }
+        }
+
+        public void recordDuration(long nanoseconds){
+            if(!_enabled){
+                return;
+            }
+
+            long duration = Math.max(0, nanoseconds);
+            int stripe = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+
+            _stripes.incrementAndGet(stripe + Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(duration)));
+            _stripes.addAndGet(stripe + SUM, duration);
+
+            // The maximum is only written when it grows
+            long max = _stripes.get(stripe + MAX);
+            while(duration > max && !_stripes.compareAndSet(stripe + MAX, max, duration)){
+                max = _stripes.get(stripe + MAX);
+            }
+        }
+
+        HistogramSnapshot snapshot(){
+            long[] buckets = new long[BUCKETS];
+            long count = 0;
+            long sum = 0;
+            long max = 0;
+
+            for(int stripe = 0; stripe < STRIPES * STRIDE; stripe += STRIDE){
+                for(int b = 0; b < BUCKETS; b++){
+                    long bucket = _stripes.get(stripe + b);
+                    buckets[b] += bucket;
+                    count += bucket;
+                }
+                sum += _stripes.get(stripe + SUM);
+                max = Math.max(max, _stripes.get(stripe + MAX));
+            }
+
+            return new HistogramSnapshot(buckets, count, sum, max);
+        }
+
+        void reset(){
+            for(int i = 0; i < _stripes.length(); i++){
+                _stripes.set(i, 0);
+            }
+        }
+    }
+
+
+
+    // Values of a histogram at a given time
+    public static final class HistogramSnapshot {
+
+        private final long[] _buckets;
+        private final long _count;
+        private final long _sum;
+        private final long _max;
+
+        HistogramSnapshot(long[] buckets, long count, long sum, long max){
+            _buckets = buckets;
+            _count = count;
+            _sum = sum;
+            _max = max;
+        }
+
+        public long getCount(){
+            return _count;
+        }
+
+        public long getMean(){
+            return (_count == 0) ? 0 : _sum / _count;
+        }
+
+        public long getMax(){
+            return _max;
+        }
+
+        // Returns an upper bound of the given percentile (between 0 and 100) of the durations, in nanoseconds
+        // It is precise to a factor of 2, since only the bucket of each duration is known
+        public long getPercentile(double percentile){
+            long rank = (long) Math.ceil(_count * percentile / 100);
+            long seen = 0;
+
+            for(int b = 0; b < _buckets.length; b++){
+                seen += _buckets[b];
+                if(seen >= rank && seen > 0){
+                    return Math.min(_max, (b == 0) ? 0 : (b >= 63) ? Long.MAX_VALUE : (1L << b) - 1);
+                }
+            }
+
+            return 0;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("count=%d mean=%.3fms p50<=%.3fms p99<=%.3fms max=%.3fms", _count,
+                    getMean() / 1e6, getPercentile(50) / 1e6, getPercentile(99) / 1e6, _max / 1e6);
+        }
+    }
+
+
+
+    // Values of all the metrics at a given time, sorted by name
+    public static final class Snapshot {
+
+        private final Map<String, Long> _counters;
+        private final Map<String, HistogramSnapshot> _histograms;
+
+        Snapshot(Map<String, Long> counters, Map<String, HistogramSnapshot> histograms){
+            _counters = Collections.unmodifiableMap(counters);
+            _histograms = Collections.unmodifiableMap(histograms);
+        }
+
+        public Map<String, Long> getCounters(){
+            return _counters;
+        }
+
+        public Map<String, HistogramSnapshot> getHistograms(){
+            return _histograms;
+        }
+
+        // Writes the metrics that were updated, one per line
+        public void dump(PrintStream out){
+            out.print(toString());
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder builder = new StringBuilder();
+
+            for(Map.Entry<String, Long> entry : _counters.entrySet()){
+                if(entry.getValue() != 0){
+                    builder.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+                }
+            }
+            for(Map.Entry<String, HistogramSnapshot> entry : _histograms.entrySet()){
+                if(entry.getValue().getCount() != 0){
+                    builder.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+                }
+            }
+
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.etienneguerlain.tictactoe;
+
+
+// This class finds the best move of a position with an exhaustive negamax search, using alpha-beta pruning,
+// move ordering and a transposition table (a hash table of the positions already searched)
+
+// It works on grids of up to 64 cells, each player being represented by a 64 bits bitboard.
+// A position is always seen from the point of view of the player who has to play (referred as "mover")
+public class NegamaxSolver {
+
+
+    // Largest grid the solver can handle (one bit per cell in a long)
+    public static final int MAX_CELLS = 64;
+
+    // Number of entries of the transposition table (2^TABLE_BITS)
+    private static final int TABLE_BITS = 16;
+
+    // Kinds of score stored in the transposition table
+    private static final int EXACT = 1;     // Score is the exact value of the position
+    private static final int LOWER = 2;     // Search was cut: the real score is greater or equal
+    private static final int UPPER = 3;     // No move reached alpha: the real score is lower or equal
+
+    private static final int NO_MOVE = 127;
+    private static final int INFINITY = 1000;
+
+
+    private final int _width;
+    private final int _height;
+    private final int _winLength;
+    private final int _cellCount;
+    private final long _fullMask;
+
+    // Bit masks of every alignment of winLength cells, and for each cell, the alignments going through it
+    // (the alignments of cell c are _lineMasks[_cellLines[k]] for k from _cellLinesStart[c] to _cellLinesStart[c + 1])
+    private final long[] _lineMasks;
+    private final int[] _cellLinesStart;
+    private final int[] _cellLines;
+
+    // Cells sorted by decreasing number of alignments going through them (center and corners first)
+    private final int[] _moveOrder;
+
+    // Transposition table: both bitboards of the position are stored to detect collisions, and the
+    // score, its kind and the best move are packed in one int
+    private final long[] _tableMover;
+    private final long[] _tableOpponent;
+    private final int[] _tableData;
+
+
+    // Initializes a solver for grids of the given size, where winLength aligned marks win
+    public NegamaxSolver(int width, int height, int winLength){
+
+        if(width * height > MAX_CELLS){
+            throw new IllegalArgumentException("Grid " + width + "x" + height + " is too big to be solved");
+        }
+
+        _width = width;
+        _height = height;
+        _winLength = winLength;
+        _cellCount = width * height;
+        _fullMask = (_cellCount == 64) ? -1L : (1L << _cellCount) - 1;
+
+        _lineMasks = buildLineMasks();
+
+        // We index the alignments going through each cell
+        _cellLinesStart = new int[_cellCount + 1];
+        int[] lineCount = new int[_cellCount];
+        for(long line : _lineMasks){
+            for(int cell = 0; cell < _cellCount; cell++){
+                if((line & (1L << cell)) != 0){
+                    lineCount[cell]++;
+                }
+            }
+        }
+        for(int cell = 0; cell < _cellCount; cell++){
+            _cellLinesStart[cell + 1] = _cellLinesStart[cell] + lineCount[cell];
+        }
+
+        _cellLines = new int[_cellLinesStart[_cellCount]];
+        int[] filled = new int[_cellCount];
+        for(int i = 0; i < _lineMasks.length; i++){
+            for(int cell = 0; cell < _cellCount; cell++){
+                if((_lineMasks[i] & (1L << cell)) != 0){
+                    _cellLines[_cellLinesStart[cell] + filled[cell]++] = i;
+                }
+            }
+        }
+
+        // Cells going through the most alignments are tried first (simple insertion sort)
+        _moveOrder = new int[_cellCount];
+        for(int cell = 0; cell < _cellCount; cell++){
+            int k = cell;
+            while(k > 0 && lineCount[_moveOrder[k - 1]] < lineCount[cell]){
+                _moveOrder[k] = _moveOrder[k - 1];
+                k--;
+            }
+            _moveOrder[k] = cell;
+        }
+
+        _tableMover = new long[1 << TABLE_BITS];
+        _tableOpponent = new long[1 << TABLE_BITS];
+        _tableData = new int[1 << TABLE_BITS];
+    }
+
+
+    // Builds the bit masks of all the alignments of winLength cells in the four directions
+    private long[] buildLineMasks(){
+        int[] directions = {0, 1, 1, 0, 1, 1, 1, -1};
+        long[] lines = new long[4 * _cellCount];
+        int count = 0;
+
+        for(int d = 0; d < directions.length; d += 2){
+            for(int line = 0; line < _height; line++){
+                for(int column = 0; column < _width; column++){
+
+                    // The alignment starts at (line, column): we check that it ends inside the grid
+                    int lastLine = line + directions[d] * (_winLength - 1);
+                    int lastColumn = column + directions[d + 1] * (_winLength - 1);
+                    if(lastLine >= _height || lastColumn < 0 || lastColumn >= _width){
+                        continue;
+                    }
+
+                    long mask = 0;
+                    for(int k = 0; k < _winLength; k++){
+                        mask |= 1L << ((line + directions[d] * k) * _width + column + directions[d + 1] * k);
+                    }
+
+                    // With a win length of 1, the four directions give the same alignment
+                    if(_winLength > 1 || d == 0){
+                        lines[count++] = mask;
+                    }
+                }
+            }
+        }
+
+        long[] result = new long[count];
+        System.arraycopy(lines, 0, result, 0, count);
+        return result;
+    }
+
+
+
+    // Tells if the solver was built for the grid size of the given game
+    public boolean handles(TicTacToe game){
+        return game.getWidth() == _width && game.getHeight() == _height && game.getWinLength() == _winLength;
+    }
+
+
+    // Searches the best move for the current player of the given game
+    // The result packs the best move (cell index line * width + column) and its score, which can be
+    // retrieved with getMove and getScore
+    public int solve(TicTacToe game){
+
+        if(!handles(game)){
+            throw new IllegalArgumentException("This solver does not handle this grid size");
+        }
+        if(game.getState() != TicTacToe.GAME_STATE.PLAYING){
+            throw new IllegalStateException("The game is finished, there is no move to play");
+        }
+
+        TicTacToe.PLAYERS player = game.getCurrentPlayer();
+        TicTacToe.PLAYERS other = (player == TicTacToe.PLAYERS.A) ? TicTacToe.PLAYERS.B : TicTacToe.PLAYERS.A;
+
+        return search(game.getMarks(player), game.getMarks(other));
+    }
+
+
+    // Searches the best move of the given position
+    private int search(long mover, long opponent){
+        long empty = _fullMask & ~(mover | opponent);
+        int emptyCount = Long.bitCount(empty);
+
+        // If a move wins at once, there is no need to look further
+        int winningMove = findWinningMove(mover, empty);
+        if(winningMove >= 0){
+            return pack(winningMove, emptyCount);
+        }
+
+        // Otherwise, each move is searched, narrowing the window with the best score found so far
+        int alpha = -INFINITY;
+        int bestMove = NO_MOVE;
+
+        for(int k = 0; k < _cellCount; k++){
+            int cell = _moveOrder[k];
+
+            if((empty & (1L << cell)) != 0){
+                int score = -negamax(opponent, mover | (1L << cell), -INFINITY, -alpha);
+
+                if(score > alpha){
+                    alpha = score;
+                    bestMove = cell;
+                }
+            }
+        }
+
+        return pack(bestMove, alpha);
+    }
+
+
+    // Returns the score of the position for the mover, between alpha and beta if possible
+    // A win scores the number of empty cells left plus one (so that quicker wins are preferred),
+    // a tie scores 0 and a loss scores the opposite of the opponent win
+    private int negamax(long mover, long opponent, int alpha, int beta){
+        long empty = _fullMask & ~(mover | opponent);
+
+        // The grid is full: it is a tie
+        if(empty == 0){
+            return 0;
+        }
+
+        int emptyCount = Long.bitCount(empty);
+
+        if(findWinningMove(mover, empty) >= 0){
+            return emptyCount;
+        }
+
+        // Best case, the mover wins with its next move (and with a single empty cell left, it is a tie)
+        int maxScore = (emptyCount > 1) ? emptyCount - 2 : 0;
+        if(beta > maxScore){
+            beta = maxScore;
+            if(alpha >= beta){
+                return beta;
+            }
+        }
+
+        // We look if the position has already been searched
+        int originalAlpha = alpha;
+        int slot = slotOf(mover, opponent);
+        int tableMove = NO_MOVE;
+
+        if(_tableData[slot] != 0 && _tableMover[slot] == mover && _tableOpponent[slot] == opponent){
+            int data = _tableData[slot];
+            int score = (byte) (data >>> 16);
+            int kind = (data >>> 8) & 3;
+            tableMove = data & 0x7F;
+
+            if(kind == EXACT){
+                return score;
+            }else if(kind == LOWER && score > alpha){
+                alpha = score;
+            }else if(kind == UPPER && score < beta){
+                beta = score;
+            }
+
+            if(alpha >= beta){
+                return score;
+            }
+        }
+
+        // The best move found earlier is tried first, then the others by decreasing number of alignments
+        int bestScore = -INFINITY;
+        int bestMove = NO_MOVE;
+
+        for(int k = -1; k < _cellCount; k++){
+            int cell = (k < 0) ? tableMove : _moveOrder[k];
+
+            if(cell == NO_MOVE || (k >= 0 && cell == tableMove) || (empty & (1L << cell)) == 0){
+                continue;
+            }
+
+            int score = -negamax(opponent, mover | (1L << cell), -beta, -alpha);
+
+            if(score > bestScore){
+                bestScore = score;
+                bestMove = cell;
+
+                if(score > alpha){
+                    alpha = score;
+                    if(alpha >= beta){
+                        break;
+                    }
+                }
+            }
+        }
+
+        // The result is stored in the transposition table (the slot is simply overwritten)
+        int kind = (bestScore <= originalAlpha) ? UPPER : (bestScore >= beta) ? LOWER : EXACT;
+        _tableMover[slot] = mover;
+        _tableOpponent[slot] = opponent;
+        _tableData[slot] = ((bestScore & 0xFF) << 16) | (kind << 8) | bestMove;
+
+        return bestScore;
+    }
+
+
+    // Returns an empty cell where the mover completes an alignment, or -1 if there is none
+    private int findWinningMove(long mover, long empty){
+
+        while(empty != 0){
+            int cell = Long.numberOfTrailingZeros(empty);
+            long marks = mover | (1L << cell);
+
+            for(int k = _cellLinesStart[cell]; k < _cellLinesStart[cell + 1]; k++){
+                long line = _lineMasks[_cellLines[k]];
+                if((marks & line) == line){
+                    return cell;
+                }
+            }
+
+            empty &= empty - 1;
+        }
+
+        return -1;
+    }
+
+
+    // Index of a position in the transposition table
+    private static int slotOf(long mover, long opponent){
+        long hash = mover * 0x9E3779B97F4A7C15L + opponent * 0xC2B2AE3D27D4EB4FL;
+        hash ^= hash >>> 29;
+        return (int) (hash >>> (64 - TABLE_BITS));
+    }
+
+
+    private static int pack(int move, int score){
+        return (score << 8) | move;
+    }
+
+
+    // Retrieves the cell index of the best move from a result of solve
+    public static int getMove(int result){
+        return result & 0xFF;
+    }
+
+    // Retrieves the score of the best move from a result of solve
+    // Positive for a win, 0 for a tie and negative for a loss, from the point of view of the current player
+    public static int getScore(int result){
+        return result >> 8;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.etienneguerlain.tictactoe;
+
+
+// This CPU player always plays the best move: it reads it from the perfect play table on the classic grid,
+// or from the tablebase of the grid if there is one, and asks the negamax solver otherwise (grids of up to 64 cells)
+public class PerfectCpuPlayer implements CpuPlayer {
+
+
+    // May be null if the table could not be read
+    private final PerfectPlayTable _table;
+
+    // May be null if there is no tablebase
+    private final Tablebase _tablebase;
+
+    // Created with the first game that is not in the table, and kept since what it learnt stays valid
+    private NegamaxSolver _solver;
+
+
+    public PerfectCpuPlayer(PerfectPlayTable table){
+        this(table, null);
+    }
+
+    public PerfectCpuPlayer(PerfectPlayTable table, Tablebase tablebase){
+        _table = table;
+        _tablebase = tablebase;
+    }
+
+
+    @Override
+    public int chooseMove(TicTacToe game){
+
+        int move = (_table != null) ? _table.getMove(game) : -1;
+
+        if(move < 0 && _tablebase != null && _tablebase.handles(game)){
+            move = _tablebase.getMove(game);
+        }
+
+        if(move < 0){
+            move = NegamaxSolver.getMove(solverFor(game).solve(game));
+        }
+
+        return move;
+    }
+
+
+    private NegamaxSolver solverFor(TicTacToe game){
+
+        if(_solver == null || !_solver.handles(game)){
+            _solver = new NegamaxSolver(game.getWidth(), game.getHeight(), game.getWinLength());
+        }
+
+        return _solver;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+// This class gives the best move and the value of every position of the classic 3x3 game with a single
+// array lookup. The table is computed once by PerfectPlayTableGenerator, and shipped in the application assets
+
+// A position is seen from the point of view of the player who has to play (referred as "mover"), and its index
+// is the grid read as a base 3 number, where each cell is 0 if empty, 1 for the mover and 2 for the opponent
+public class PerfectPlayTable {
+
+
+    // Name of the table file in the application assets
+    public static final String ASSET_NAME = "perfect_play.bin";
+
+    // Number of positions of the table (3^9)
+    public static final int SIZE = 19683;
+
+    // Identifies the file format ("TTT1")
+    static final int MAGIC = 0x54545431;
+
+    // Values of a position for the mover, stored in the high bits of an entry
+    // An entry is 0 for a position that can't be reached, or where the game is finished
+    public static final int WIN = 1;
+    public static final int TIE = 2;
+    public static final int LOSS = 3;
+
+    // Value of the cells of the grid in base 3, for each of the 512 possible bitboards
+    private static final int[] BASE3 = new int[512];
+
+    static {
+        for(int mask = 1; mask < 512; mask++){
+            int cell = Integer.numberOfTrailingZeros(mask);
+            int power = 1;
+            for(int i = 0; i < cell; i++){
+                power *= 3;
+            }
+            BASE3[mask] = BASE3[mask & (mask - 1)] + power;
+        }
+    }
+
+
+    // Each entry packs the best move (cell index line * 3 + column) in its 4 low bits, and the value above
+    private final byte[] _entries;
+
+
+    PerfectPlayTable(byte[] entries){
+        _entries = entries;
+    }
+
+
+    // Reads a table written by PerfectPlayTableGenerator
+    public static PerfectPlayTable read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+
+        if(data.readInt() != MAGIC || data.readInt() != SIZE){
+            throw new IOException("Not a perfect play table");
+        }
+
+        byte[] entries = new byte[SIZE];
+        data.readFully(entries);
+
+        return new PerfectPlayTable(entries);
+    }
+
+
+    // Index of a position in the table
+    static int indexOf(int mover, int opponent){
+        return BASE3[mover] + 2 * BASE3[opponent];
+    }
+
+
+    // Returns the entry of the current position of the given classic 3x3 game
+    private int entryOf(TicTacToe game){
+        TicTacToe.PLAYERS player = game.getCurrentPlayer();
+        TicTacToe.PLAYERS other = (player == TicTacToe.PLAYERS.A) ? TicTacToe.PLAYERS.B : TicTacToe.PLAYERS.A;
+
+        return _entries[indexOf((int) game.getMarks(player), (int) game.getMarks(other))];
+    }
+
+
+    // Returns the best move (cell index line * 3 + column) for the current player of the given game,
+    // or -1 if the position is not in the table (the game is finished, or not a classic 3x3 game)
+    public int getMove(TicTacToe game){
+        if(!isClassicGame(game)){
+            return -1;
+        }
+
+        int entry = entryOf(game);
+        return (entry == 0) ? -1 : (entry & 0x0F);
+    }
+
+
+    // Returns the value of the current position (WIN, TIE or LOSS) for the current player of the given game,
+    // or 0 if the position is not in the table
+    public int getValue(TicTacToe game){
+        return isClassicGame(game) ? (entryOf(game) >>> 4) & 0x03 : 0;
+    }
+
+
+    // Tells if the table can be used for the given game
+    public static boolean isClassicGame(TicTacToe game){
+        return game.getWidth() == 3 && game.getHeight() == 3 && game.getWinLength() == 3;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+
+// This program computes the perfect play table of the classic 3x3 game, and writes it to the file given
+// as first argument. It is run at build time, and the result is shipped in the application assets
+
+// Every position reachable from an empty grid is visited (whoever plays first), and the negamax solver
+// gives its best move and value
+public class PerfectPlayTableGenerator {
+
+
+    private final NegamaxSolver _solver = new NegamaxSolver(3, 3, 3);
+
+    private final byte[] _entries = new byte[PerfectPlayTable.SIZE];
+
+    // Number of positions stored in the table
+    private int _positionCount;
+
+
+    public static void main(String[] args) throws IOException {
+
+        if(args.length != 1){
+            System.err.println("Usage: PerfectPlayTableGenerator <output file>");
+            System.exit(1);
+        }
+
+        PerfectPlayTableGenerator generator = new PerfectPlayTableGenerator();
+        generator.visitAll();
+        generator.write(args[0]);
+
+        System.out.println(generator._positionCount + " positions written to " + args[0]);
+    }
+
+
+    // Computes the table in memory, without writing it (useful when the assets are not available)
+    public static PerfectPlayTable generate(){
+        PerfectPlayTableGenerator generator = new PerfectPlayTableGenerator();
+        generator.visitAll();
+
+        return new PerfectPlayTable(generator._entries);
+    }
+
+
+    // Visits all the positions reachable from an empty grid
+    private void visitAll(){
+
+        // Both players may play first
+        visit(new int[9], 0, TicTacToe.PLAYERS.A);
+        visit(new int[9], 0, TicTacToe.PLAYERS.B);
+    }
+
+
+    // Visits the position obtained by playing the given moves from an empty grid, and all the positions
+    // that can follow it
+    private void visit(int[] moves, int moveCount, TicTacToe.PLAYERS firstPlayer){
+
+        // The position is rebuilt with the game engine
+        TicTacToe game = new TicTacToe();
+        game.setCurrentPlayer(firstPlayer);
+        for(int i = 0; i < moveCount; i++){
+            game.playCell(moves[i] / 3, moves[i] % 3);
+        }
+
+        if(game.getState() != TicTacToe.GAME_STATE.PLAYING){
+            return;
+        }
+
+        TicTacToe.PLAYERS player = game.getCurrentPlayer();
+        TicTacToe.PLAYERS other = (player == TicTacToe.PLAYERS.A) ? TicTacToe.PLAYERS.B : TicTacToe.PLAYERS.A;
+        int index = PerfectPlayTable.indexOf((int) game.getMarks(player), (int) game.getMarks(other));
+
+        // A position can be reached in several ways: it is only searched the first time
+        if(_entries[index] != 0){
+            return;
+        }
+
+        int result = _solver.solve(game);
+        int score = NegamaxSolver.getScore(result);
+        int value = (score > 0) ? PerfectPlayTable.WIN : (score < 0) ? PerfectPlayTable.LOSS : PerfectPlayTable.TIE;
+
+        _entries[index] = (byte) ((value << 4) | NegamaxSolver.getMove(result));
+        _positionCount++;
+
+        // Then every following position is visited
+        for(int cell = 0; cell < 9; cell++){
+            if(game.getCell(cell / 3, cell % 3) == 0){
+                moves[moveCount] = cell;
+                visit(moves, moveCount + 1, firstPlayer);
+            }
+        }
+    }
+
+
+    // Writes the table in the format read by PerfectPlayTable.read
+    private void write(String fileName) throws IOException {
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(fileName));
+
+        try{
+            output.writeInt(PerfectPlayTable.MAGIC);
+            output.writeInt(PerfectPlayTable.SIZE);
+            output.write(_entries);
+        }finally{
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.Random;
+
+
+// This CPU player plays randomly on one of the empty cells
+public class RandomCpuPlayer implements CpuPlayer {
+
+
+    private final Random _random;
+
+    // Buffer receiving the cells that can be played, grown if a bigger grid comes
+    private int[] _legalMoves = new int[9];
+
+
+    public RandomCpuPlayer(Random random){
+        _random = random;
+    }
+
+
+    @Override
+    public int chooseMove(TicTacToe game){
+
+        if(_legalMoves.length < game.getCellCount()){
+            _legalMoves = new int[game.getCellCount()];
+        }
+
+        // A single draw among the cells that can be played
+        int count = game.getLegalMoves(_legalMoves);
+        return _legalMoves[_random.nextInt(count)];
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+
+// This player stands for an opponent playing on another device, through a GameServer (see GameProtocol)
+// It can replace a CPU player: chooseMove sends the moves played locally since its last call, and waits for the
+// move of the remote opponent
+
+// The connection is blocking, hence its methods must be called from a background thread. Interrupting this
+// thread closes the connection
+public class RemotePlayer implements CpuPlayer, Closeable {
+
+
+    private final SocketChannel _channel;
+
+    // Frames are written and read in these buffers, allocated once
+    private final ByteBuffer _out = ByteBuffer.allocate(GameProtocol.FRAME_SIZE);
+    private final ByteBuffer _in = ByteBuffer.allocate(GameProtocol.FRAME_SIZE);
+
+    // Number of moves of the current game known by the server (played locally and sent, or received)
+    private int _syncedMoves;
+
+
+    private RemotePlayer(SocketChannel channel){
+        _channel = channel;
+    }
+
+
+    // Connects to the server at the given address
+    public static RemotePlayer connect(InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+
+        return new RemotePlayer(channel);
+    }
+
+
+    // Asks the server for an opponent on the given grid, and waits until one is found
+    // Returns true if the remote opponent plays first
+    public boolean join(int width, int height, int winLength) throws IOException {
+        send(GameProtocol.JOIN, width, height, winLength);
+
+        // Frames of the previous game may still come before START: for instance the answer to a move sent while
+        // the opponent was leaving, which comes after OPPONENT_LEFT. They are skipped
+        byte type;
+        while((type = readFrame()) != GameProtocol.START){
+            if(type != GameProtocol.RESULT && type != GameProtocol.OPPONENT_MOVE && type != GameProtocol.OPPONENT_LEFT){
+                throw new IOException("Unexpected frame " + type + " instead of " + GameProtocol.START);
+            }
+        }
+        _syncedMoves = 0;
+
+        return GameProtocol.getArgument(_in, 0, 0) == 0;
+    }
+
+
+    // Sends the moves played locally that the server doesn't know yet (e.g. the last move, that ended the game)
+    public void sendMoves(TicTacToe game) throws IOException {
+
+        while(_syncedMoves < game.getMoveCount()){
+            int move = game.getMove(_syncedMoves);
+            send(GameProtocol.MOVE, move / game.getWidth(), move % game.getWidth(), 0);
+
+            receive(GameProtocol.RESULT);
+            if(GameProtocol.getArgument(_in, 0, 0) != TicTacToe.PLAY_RESULT.OK.ordinal()){
+                throw new IOException("Move refused by the server: the games are out of sync");
+            }
+
+            _syncedMoves++;
+        }
+    }
+
+
+    // Sends the local moves, then waits for the move of the remote opponent
+    // Connection errors are thrown as IllegalStateException, since CpuPlayer doesn't allow checked exceptions
+    @Override
+    public int chooseMove(TicTacToe game) {
+        try{
+            sendMoves(game);
+
+            receive(GameProtocol.OPPONENT_MOVE);
+            _syncedMoves++;
+
+            return GameProtocol.getArgument(_in, 0, 0) * game.getWidth() + GameProtocol.getArgument(_in, 0, 1);
+        }catch(IOException e){
+            throw new IllegalStateException("Connection to the remote player lost", e);
+        }
+    }
+
+
+    // Tells if the connection is still open (it is closed when a thread using it is interrupted)
+    public boolean isOpen(){
+        return _channel.isOpen();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+
+
+    private void send(byte type, int first, int second, int third) throws IOException {
+        _out.clear();
+        GameProtocol.putFrame(_out, type, first, second, third);
+        _out.flip();
+
+        while(_out.hasRemaining()){
+            _channel.write(_out);
+        }
+    }
+
+
+    // Reads the next frame, which must be of the given type
+    private void receive(byte type) throws IOException {
+        byte received = readFrame();
+
+        if(received == GameProtocol.OPPONENT_LEFT){
+            throw new IOException("The remote player left");
+        }
+        if(received != type){
+            throw new IOException("Unexpected frame " + received + " instead of " + type);
+        }
+    }
+
+
+    // Reads the next frame in the input buffer, and returns its type
+    private byte readFrame() throws IOException {
+        _in.clear();
+
+        while(_in.hasRemaining()){
+            if(_channel.read(_in) < 0){
+                throw new IOException("Connection closed by the server");
+            }
+        }
+
+        return _in.get(0);
+    }
+}
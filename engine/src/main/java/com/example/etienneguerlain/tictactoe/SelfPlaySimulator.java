@@ -0,0 +1,194 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+// This program plays many games between two CPU players, without any user interface, and counts how they end
+// It is used to check that the difficulty levels behave as advertised
+
+// Games are spread over a ForkJoinPool. Each thread has its own game engine and CPU players, and each task counts
+// its own results, which are only added up when tasks are joined: threads never share a counter
+public class SelfPlaySimulator {
+
+
+    // Tasks play at most this number of games, and split their work in two otherwise
+    private static final int GAMES_PER_TASK = 4096;
+
+    // Each simulation is run for a single hand, and counts how its games ended: results[A_WON], results[B_WON]
+    // and results[TIE], one counter for each GAME_STATE value a game can end with
+    private static final int OUTCOMES = 3;
+    private static final int A_WON = 0;
+    private static final int B_WON = 1;
+    private static final int TIE = 2;
+
+
+    private final Settings.MODES _modeA;
+    private final Settings.MODES _modeB;
+    private final int _width;
+    private final int _height;
+    private final int _winLength;
+
+    // Shared by all the threads, since it is only read
+    private final PerfectPlayTable _table;
+
+    // Game engine and CPU players of each thread
+    private final ThreadLocal<Context> _contexts = new ThreadLocal<Context>(){
+        @Override
+        protected Context initialValue(){
+            return new Context();
+        }
+    };
+
+
+    // Prepares the simulation of games between player A, backed by the CPU player of modeA, and player B,
+    // backed by the CPU player of modeB, on a grid of the given size
+    public SelfPlaySimulator(Settings.MODES modeA, Settings.MODES modeB, int width, int height, int winLength){
+        _modeA = modeA;
+        _modeB = modeB;
+        _width = width;
+        _height = height;
+        _winLength = winLength;
+        _table = (width == 3 && height == 3 && winLength == 3) ? PerfectPlayTableGenerator.generate() : null;
+    }
+
+
+    // Usage: SelfPlaySimulator <games> <mode of player A> <mode of player B> [<width> <height> <win length>]
+    // For instance "SelfPlaySimulator 1000000 IMPOSSIBLE EASY" plays a million games for each hand
+    public static void main(String[] args){
+
+        if(args.length != 3 && args.length != 6){
+            System.err.println("Usage: SelfPlaySimulator <games> <mode A> <mode B> [<width> <height> <win length>]");
+            System.exit(1);
+        }
+
+        long games = Long.parseLong(args[0]);
+        Settings.MODES modeA = Settings.MODES.valueOf(args[1]);
+        Settings.MODES modeB = Settings.MODES.valueOf(args[2]);
+        int width = (args.length == 6) ? Integer.parseInt(args[3]) : 3;
+        int height = (args.length == 6) ? Integer.parseInt(args[4]) : 3;
+        int winLength = (args.length == 6) ? Integer.parseInt(args[5]) : 3;
+
+        SelfPlaySimulator simulator = new SelfPlaySimulator(modeA, modeB, width, height, winLength);
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        System.out.println(modeA + " (A) against " + modeB + " (B), " + width + "x" + height + " grid, "
+                + winLength + " to win, " + games + " games per hand");
+        System.out.println(String.format("%-6s %12s %12s %12s %14s", "HAND", "A_WON", "B_WON", "TIE", "games/s"));
+
+        for(Settings.HAND hand : Settings.HAND.values()){
+            long start = System.nanoTime();
+            long[] results = simulator.simulate(pool, hand, games);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println(String.format("%-6s %12d %12d %12d %14.0f", hand,
+                    results[A_WON], results[B_WON], results[TIE], games / seconds));
+        }
+
+        pool.shutdown();
+
+        // Metrics are enabled with -Dtictactoe.metrics=true
+        if(Metrics.isEnabled()){
+            System.out.println();
+            Metrics.snapshot().dump(System.out);
+        }
+    }
+
+
+    // Plays the given number of games with the given hand, where player A stands for the user and player B for
+    // the CPU (with LET, player B plays first). Returns the number of games won by A, won by B, and tied
+    public long[] simulate(ForkJoinPool pool, Settings.HAND hand, long games){
+        return pool.invoke(new GamesTask(hand, 0, games));
+    }
+
+
+    // Plays the games numbered from first to last (excluded), splitting them in two halves if there are too many
+    // Fork/join tasks are serializable, but these ones are never serialized
+    @SuppressWarnings("serial")
+    private class GamesTask extends RecursiveTask<long[]> {
+
+        private final Settings.HAND _hand;
+        private final long _first;
+        private final long _last;
+
+
+        GamesTask(Settings.HAND hand, long first, long last){
+            _hand = hand;
+            _first = first;
+            _last = last;
+        }
+
+
+        @Override
+        protected long[] compute(){
+
+            if(_last - _first > GAMES_PER_TASK){
+                long middle = (_first + _last) >>> 1;
+                GamesTask left = new GamesTask(_hand, _first, middle);
+                left.fork();
+
+                long[] results = new GamesTask(_hand, middle, _last).compute();
+                long[] leftResults = left.join();
+                for(int i = 0; i < OUTCOMES; i++){
+                    results[i] += leftResults[i];
+                }
+                return results;
+            }
+
+            // Results are counted locally, in the stack of this task
+            long aWon = 0;
+            long bWon = 0;
+            long tie = 0;
+            Context context = _contexts.get();
+
+            for(long i = _first; i < _last; i++){
+                switch (context.playGame(_hand)){
+                    case A_WON:
+                        aWon++;
+                        break;
+                    case B_WON:
+                        bWon++;
+                        break;
+                    default:
+                        tie++;
+                        break;
+                }
+            }
+
+            return new long[]{aWon, bWon, tie};
+        }
+    }
+
+
+    // Game engine and CPU players used by one thread
+    private class Context {
+
+        private final TicTacToe _game = new TicTacToe(_width, _height, _winLength);
+        private final Random _random = new Random();
+        private final CpuPlayer _playerA = CpuPlayers.create(_modeA, _game.getCellCount(), _table, _random, 1);
+        private final CpuPlayer _playerB = CpuPlayers.create(_modeB, _game.getCellCount(), _table, _random, 1);
+
+
+        // Plays a whole game, and returns how it ended
+        TicTacToe.GAME_STATE playGame(Settings.HAND hand){
+            _game.reset();
+
+            // Who plays first depends on the hand, the same way as in GameActivity
+            if(hand == Settings.HAND.LET || (hand == Settings.HAND.FAIR && _random.nextFloat() < 0.5)){
+                _game.setCurrentPlayer(TicTacToe.PLAYERS.B);
+            }
+
+            while(_game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                CpuPlayer player = (_game.getCurrentPlayer() == TicTacToe.PLAYERS.A) ? _playerA : _playerB;
+                int move = player.chooseMove(_game);
+                _game.playCell(move / _width, move % _width);
+            }
+
+            // Player B stands for the CPU, as in GameActivity
+            Metrics.countGame(_modeB, hand, _game.getState());
+
+            return _game.getState();
+        }
+    }
+}
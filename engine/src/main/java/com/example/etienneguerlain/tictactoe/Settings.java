@@ -0,0 +1,158 @@
+package com.example.etienneguerlain.tictactoe;
+
+// This class handles the management of the app settings
+// It is accessible from any activity via a singleton pattern
+// The values are kept between two launches of the application by a Storage, installed when the application starts
+public class Settings {
+
+
+    // Enumeration of themes user can choose from
+    public enum THEMES {
+        TICTACTOE, CHRISTMAS, EASTER, BEACH, NIGHT
+    }
+
+    // Difficulty levels, from the least to the most computing power given to the CPU
+    public enum MODES{
+        EASY,   // CPU plays randomly on the grid
+        NORMAL, // CPU runs a small tree search, that misses the forks of its opponent (it can be beaten)
+        IMPOSSIBLE  // CPU always plays wisely (Impossible to beat)
+    }
+
+    // Tells who plays first
+    public enum HAND{
+        LET,    // CPU plays first
+        FAIR,   // 50/50
+        START   // User plays first
+    }
+
+
+    // Values of the settings at a given time. A snapshot never changes: setters publish a new one
+    // Hence any thread (the UI or a CPU player thread) can read the settings without locking
+    public static final class Snapshot {
+
+        public static final Snapshot DEFAULT = new Snapshot(THEMES.TICTACTOE, MODES.NORMAL, HAND.FAIR);
+
+        private final THEMES _theme;
+        private final MODES _mode;
+        private final HAND _hand;
+
+        public Snapshot(THEMES theme, MODES mode, HAND hand){
+            _theme = theme;
+            _mode = mode;
+            _hand = hand;
+        }
+
+        public THEMES getTheme(){
+            return _theme;
+        }
+
+        public MODES getMode(){
+            return _mode;
+        }
+
+        public HAND getHand(){
+            return _hand;
+        }
+    }
+
+
+    // Where the settings are kept between two launches of the application
+    // save() is called at each change, and should not block (writes are expected to be done in the background)
+    public interface Storage {
+        Snapshot load();
+        void save(Snapshot snapshot);
+    }
+
+
+    // Current values of the settings, read from the storage at first access (null until then)
+    private volatile Snapshot _snapshot;
+
+    // By default, the settings are only kept in memory
+    private Storage _storage = new Storage() {
+        @Override
+        public Snapshot load() {
+            return Snapshot.DEFAULT;
+        }
+
+        @Override
+        public void save(Snapshot snapshot) {
+        }
+    };
+
+
+    // Singleton pattern, allowing access from any activity to a unique instance of Settings
+    public static final Settings instanceOfSettings = new Settings();
+
+    public static Settings getInstance(){
+        return instanceOfSettings;
+    }
+
+
+    // Private constructor of Settings class. The values are read from the storage at first access
+    private Settings(){
+    }
+
+
+    // Sets where the settings are kept. It should be called before the settings are accessed
+    // (otherwise, they are read again from the new storage at next access)
+    public synchronized void setStorage(Storage storage){
+        _storage = storage;
+        _snapshot = null;
+    }
+
+
+    // Returns the current values of the settings, reading them from the storage at first call
+    public Snapshot getSnapshot(){
+        Snapshot snapshot = _snapshot;
+
+        if(snapshot == null){
+            synchronized (this){
+                snapshot = _snapshot;
+
+                if(snapshot == null){
+                    snapshot = _storage.load();
+                    _snapshot = snapshot;
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+
+    // Publishes the new values of the settings, and saves them
+    // Saving is done under the lock, so that the storage receives the snapshots in the order they were published
+    private synchronized void publish(Snapshot snapshot){
+        _snapshot = snapshot;
+        _storage.save(snapshot);
+    }
+
+
+    // Getters and setters
+    public THEMES getTheme() {
+        return getSnapshot().getTheme();
+    }
+
+    public synchronized void setTheme(THEMES newTheme){
+        Snapshot current = getSnapshot();
+        publish(new Snapshot(newTheme, current.getMode(), current.getHand()));
+    }
+
+    public MODES getMode(){
+        return getSnapshot().getMode();
+    }
+
+    public synchronized void setMode(MODES newMode){
+        Snapshot current = getSnapshot();
+        publish(new Snapshot(current.getTheme(), newMode, current.getHand()));
+    }
+
+    public HAND getHand(){
+        return getSnapshot().getHand();
+    }
+
+    public synchronized void setHand(HAND newHand){
+        Snapshot current = getSnapshot();
+        publish(new Snapshot(current.getTheme(), current.getMode(), newHand));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+// This class gives the value of every position of a small grid (up to 16 cells, e.g. 4x4), and the number of moves
+// left before the game ends when both players play perfectly. The file is computed offline by TablebaseGenerator,
+// and mapped in memory: positions are read from it without loading it
+
+// Positions are indexed the same way as in PerfectPlayTable: the grid is read as a base 3 number, where each cell is
+// 0 if empty, 1 for the player who has to play (the mover) and 2 for the opponent
+public class Tablebase {
+
+
+    public static final int MAX_CELLS = 16;
+
+    // Identifies the file format ("TTB1"). The header also holds the grid size and win length
+    static final int MAGIC = 0x54544231;
+    static final int HEADER_SIZE = 16;
+
+    // Each entry packs the value of the position for the mover (PerfectPlayTable.WIN, TIE or LOSS) in its 2 high bits,
+    // and the number of moves left before the end of the game in its 6 low bits
+    // An entry is 0 for a position that can't be reached
+    static final int VALUE_SHIFT = 6;
+    static final int DISTANCE_MASK = 0x3F;
+
+    // Value of the cells of the grid in base 3, for each possible bitboard, and powers of 3
+    private static final int[] BASE3 = new int[1 << MAX_CELLS];
+    static final int[] POWERS3 = new int[MAX_CELLS + 1];
+
+    static {
+        POWERS3[0] = 1;
+        for(int i = 1; i <= MAX_CELLS; i++){
+            POWERS3[i] = POWERS3[i - 1] * 3;
+        }
+        for(int mask = 1; mask < BASE3.length; mask++){
+            BASE3[mask] = BASE3[mask & (mask - 1)] + POWERS3[Integer.numberOfTrailingZeros(mask)];
+        }
+    }
+
+
+    private final int _width;
+    private final int _height;
+    private final int _winLength;
+
+    // Only read with absolute gets, hence it can be shared by threads
+    private final ByteBuffer _entries;
+
+
+    private Tablebase(int width, int height, int winLength, ByteBuffer entries){
+        _width = width;
+        _height = height;
+        _winLength = winLength;
+        _entries = entries;
+    }
+
+
+    // Maps the given file, written by TablebaseGenerator
+    public static Tablebase open(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+
+        // The mapping stays valid once the file is closed
+        try{
+            ByteBuffer buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+
+            int width = buffer.getInt(4);
+            int height = buffer.getInt(8);
+            int winLength = buffer.getInt(12);
+
+            if(buffer.getInt(0) != MAGIC || width * height > MAX_CELLS
+                    || buffer.capacity() != HEADER_SIZE + (long) POWERS3[width * height]){
+                throw new IOException("Not a tablebase: " + file);
+            }
+
+            buffer.position(HEADER_SIZE);
+            return new Tablebase(width, height, winLength, buffer.slice());
+
+        }finally{
+            input.close();
+        }
+    }
+
+
+    // Index of the position where the mover owns the cells of the first bitboard, and the opponent those of the second
+    static int indexOf(int mover, int opponent){
+        return BASE3[mover] + 2 * BASE3[opponent];
+    }
+
+
+    // Tells if the positions of the given game are in this tablebase
+    public boolean handles(TicTacToe game){
+        return game.getWidth() == _width && game.getHeight() == _height && game.getWinLength() == _winLength;
+    }
+
+
+    // Returns the value of the position for the player who has to play (PerfectPlayTable.WIN, TIE or LOSS)
+    public int getValue(TicTacToe game){
+        return (entryOf(game) & 0xFF) >>> VALUE_SHIFT;
+    }
+
+    // Returns the number of moves left before the end of the game, when both players play perfectly
+    public int getDistance(TicTacToe game){
+        return entryOf(game) & DISTANCE_MASK;
+    }
+
+
+    // Returns the best move (cell index line * width + column) of the given game, or -1 if it is finished
+    // The fastest win is preferred, then a tie, then the slowest loss. It costs one lookup per empty cell
+    public int getMove(TicTacToe game){
+
+        if(game.getState() != TicTacToe.GAME_STATE.PLAYING){
+            return -1;
+        }
+
+        TicTacToe.PLAYERS player = game.getCurrentPlayer();
+        TicTacToe.PLAYERS other = (player == TicTacToe.PLAYERS.A) ? TicTacToe.PLAYERS.B : TicTacToe.PLAYERS.A;
+        int mover = (int) game.getMarks(player);
+        int opponent = (int) game.getMarks(other);
+
+        // After a move, the opponent becomes the mover: each following position is read from its point of view
+        int base = indexOf(opponent, mover);
+        int free = ~(mover | opponent) & ((1 << game.getCellCount()) - 1);
+
+        int bestMove = -1;
+        int bestRank = Integer.MIN_VALUE;
+
+        while(free != 0){
+            int cell = Integer.numberOfTrailingZeros(free);
+            free &= free - 1;
+
+            int entry = _entries.get(base + 2 * POWERS3[cell]) & 0xFF;
+            int rank = rank(entry >>> VALUE_SHIFT, entry & DISTANCE_MASK);
+
+            if(rank > bestRank){
+                bestRank = rank;
+                bestMove = cell;
+            }
+        }
+
+        return bestMove;
+    }
+
+
+    // Ranks a move by the value of the position it leads to, for the opponent: a position lost by the opponent
+    // is the best, the sooner the better, and a position it wins is the worst, the later the better
+    private static int rank(int opponentValue, int distance){
+        switch (opponentValue){
+            case PerfectPlayTable.LOSS:
+                return 2 * 64 - distance;
+            case PerfectPlayTable.TIE:
+                return 64;
+            default:
+                return distance;
+        }
+    }
+
+
+    private int entryOf(TicTacToe game){
+        if(!handles(game)){
+            throw new IllegalArgumentException("The tablebase holds the " + _width + "x" + _height + " grid with "
+                    + _winLength + " to win");
+        }
+
+        TicTacToe.PLAYERS player = game.getCurrentPlayer();
+        TicTacToe.PLAYERS other = (player == TicTacToe.PLAYERS.A) ? TicTacToe.PLAYERS.B : TicTacToe.PLAYERS.A;
+
+        return _entries.get(indexOf((int) game.getMarks(player), (int) game.getMarks(other)));
+    }
+}
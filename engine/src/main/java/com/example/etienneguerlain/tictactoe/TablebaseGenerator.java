@@ -0,0 +1,282 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+// This program computes the tablebase of a small grid (see Tablebase), by retrograde analysis
+// e.g. "TablebaseGenerator 4 4 4 tablebase.bin" solves the 4x4 grid, where four aligned marks win
+
+// Positions are solved layer by layer, from the full grid back to the empty one: the positions with a given number
+// of marks only lead to positions with one more mark, which are all solved already. Hence each position is solved
+// once, with one lookup per empty cell, and no search. The positions of a layer are spread over a ForkJoinPool,
+// and written straight into the file, mapped in memory
+public class TablebaseGenerator {
+
+
+    // Tasks solve the positions of at most this number of mover bitboards, and split their work in two otherwise
+    private static final int MOVERS_PER_TASK = 64;
+
+
+    private final int _width;
+    private final int _height;
+    private final int _winLength;
+    private final int _cellCount;
+    private final int _full;
+
+    // Bitboards of all the alignments of winLength cells
+    private final int[] _lines;
+
+    // Bitboards of the grid, by number of marks
+    private final int[][] _masksByCount;
+
+    private ByteBuffer _entries;
+
+
+    // Usage: TablebaseGenerator <width> <height> <win length> <output file>
+    public static void main(String[] args) throws IOException {
+
+        if(args.length != 4){
+            System.err.println("Usage: TablebaseGenerator <width> <height> <win length> <output file>");
+            System.exit(1);
+        }
+
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        int winLength = Integer.parseInt(args[2]);
+        File file = new File(args[3]);
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        new TablebaseGenerator(width, height, winLength).generate(file, pool);
+        pool.shutdown();
+
+        System.out.println(String.format("%dx%d grid, %d to win, solved in %.1fs, written to %s",
+                width, height, winLength, (System.nanoTime() - start) / 1e9, file));
+    }
+
+
+    public TablebaseGenerator(int width, int height, int winLength){
+
+        // Checks the grid size and win length
+        new TicTacToe(width, height, winLength);
+
+        if(width * height > Tablebase.MAX_CELLS){
+            throw new IllegalArgumentException("Tablebases hold grids of up to " + Tablebase.MAX_CELLS + " cells");
+        }
+
+        _width = width;
+        _height = height;
+        _winLength = winLength;
+        _cellCount = width * height;
+        _full = (1 << _cellCount) - 1;
+        _lines = lines(width, height, winLength);
+
+        int[] counts = new int[_cellCount + 1];
+        for(int mask = 0; mask <= _full; mask++){
+            counts[Integer.bitCount(mask)]++;
+        }
+
+        _masksByCount = new int[_cellCount + 1][];
+        for(int count = 0; count <= _cellCount; count++){
+            _masksByCount[count] = new int[counts[count]];
+            counts[count] = 0;
+        }
+        for(int mask = 0; mask <= _full; mask++){
+            int count = Integer.bitCount(mask);
+            _masksByCount[count][counts[count]++] = mask;
+        }
+    }
+
+
+    // Solves all the positions, and writes them to the given file in the format read by Tablebase.open
+    public void generate(File file, ForkJoinPool pool) throws IOException {
+
+        // A file extended by setLength reads as zeros, hence the positions that can't be reached are left to 0
+        if(file.exists() && !file.delete()){
+            throw new IOException("Unable to replace " + file);
+        }
+
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+
+        try{
+            long size = Tablebase.HEADER_SIZE + (long) Tablebase.POWERS3[_cellCount];
+            output.setLength(size);
+
+            MappedByteBuffer buffer = output.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, Tablebase.MAGIC);
+            buffer.putInt(4, _width);
+            buffer.putInt(8, _height);
+            buffer.putInt(12, _winLength);
+
+            buffer.position(Tablebase.HEADER_SIZE);
+            _entries = buffer.slice();
+
+            // The mover has as many marks as the opponent (it played first), or one less
+            for(int marks = _cellCount; marks >= 0; marks--){
+                int[] movers = _masksByCount[marks / 2];
+                pool.invoke(new LayerTask(movers, marks - marks / 2, 0, movers.length));
+            }
+
+            buffer.force();
+
+        }finally{
+            output.close();
+        }
+    }
+
+
+    // Solves the positions of a layer, for the mover bitboards from first to last (excluded)
+    // Fork/join tasks are serializable, but these ones are never serialized
+    @SuppressWarnings("serial")
+    private class LayerTask extends RecursiveAction {
+
+        private final int[] _movers;
+        private final int _opponentCount;
+        private final int _first;
+        private final int _last;
+
+        LayerTask(int[] movers, int opponentCount, int first, int last){
+            _movers = movers;
+            _opponentCount = opponentCount;
+            _first = first;
+            _last = last;
+        }
+
+        @Override
+        protected void compute(){
+
+            if(_last - _first > MOVERS_PER_TASK){
+                int middle = (_first + _last) >>> 1;
+                invokeAll(new LayerTask(_movers, _opponentCount, _first, middle),
+                        new LayerTask(_movers, _opponentCount, middle, _last));
+                return;
+            }
+
+            for(int i = _first; i < _last; i++){
+                int mover = _movers[i];
+                int free = _full & ~mover;
+
+                // Every subset of the free cells with the right number of marks is an opponent bitboard
+                for(int opponent = free; ; opponent = (opponent - 1) & free){
+                    if(Integer.bitCount(opponent) == _opponentCount){
+                        solve(mover, opponent);
+                    }
+                    if(opponent == 0){
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+
+    // Solves a position from the positions it leads to
+    private void solve(int mover, int opponent){
+        int index = Tablebase.indexOf(mover, opponent);
+        int value;
+        int distance = 0;
+
+        if(hasLine(opponent)){
+            // The opponent has just won
+            value = PerfectPlayTable.LOSS;
+
+        }else if(hasLine(mover)){
+            // The mover would have won before: the position can't be reached
+            return;
+
+        }else if((mover | opponent) == _full){
+            value = PerfectPlayTable.TIE;
+
+        }else{
+            // After each move, the opponent becomes the mover
+            int base = Tablebase.indexOf(opponent, mover);
+            int free = _full & ~(mover | opponent);
+
+            int winDistance = Integer.MAX_VALUE;
+            int tieDistance = Integer.MAX_VALUE;
+            int lossDistance = 0;
+
+            while(free != 0){
+                int cell = Integer.numberOfTrailingZeros(free);
+                free &= free - 1;
+
+                int entry = _entries.get(base + 2 * Tablebase.POWERS3[cell]) & 0xFF;
+                int childDistance = entry & Tablebase.DISTANCE_MASK;
+
+                switch (entry >>> Tablebase.VALUE_SHIFT){
+                    case PerfectPlayTable.LOSS:
+                        winDistance = Math.min(winDistance, childDistance);
+                        break;
+                    case PerfectPlayTable.TIE:
+                        tieDistance = Math.min(tieDistance, childDistance);
+                        break;
+                    default:
+                        lossDistance = Math.max(lossDistance, childDistance);
+                }
+            }
+
+            // The mover wins as soon as possible, otherwise ties, otherwise loses as late as possible
+            if(winDistance != Integer.MAX_VALUE){
+                value = PerfectPlayTable.WIN;
+                distance = winDistance + 1;
+            }else if(tieDistance != Integer.MAX_VALUE){
+                value = PerfectPlayTable.TIE;
+                distance = tieDistance + 1;
+            }else{
+                value = PerfectPlayTable.LOSS;
+                distance = lossDistance + 1;
+            }
+        }
+
+        _entries.put(index, (byte) ((value << Tablebase.VALUE_SHIFT) | distance));
+    }
+
+
+    private boolean hasLine(int marks){
+        for(int line : _lines){
+            if((marks & line) == line){
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    // Bitboards of all the alignments of winLength cells: horizontal, vertical and both diagonals
+    private static int[] lines(int width, int height, int winLength){
+        int[] steps = {0, 1, 1, 0, 1, 1, 1, -1};
+        int[] lines = new int[4 * width * height];
+        int count = 0;
+
+        for(int d = 0; d < steps.length; d += 2){
+            for(int line = 0; line < height; line++){
+                for(int column = 0; column < width; column++){
+                    int lastLine = line + steps[d] * (winLength - 1);
+                    int lastColumn = column + steps[d + 1] * (winLength - 1);
+
+                    if(lastLine < 0 || lastLine >= height || lastColumn < 0 || lastColumn >= width){
+                        continue;
+                    }
+
+                    int mask = 0;
+                    for(int i = 0; i < winLength; i++){
+                        mask |= 1 << ((line + steps[d] * i) * width + column + steps[d + 1] * i);
+                    }
+                    lines[count++] = mask;
+                }
+            }
+        }
+
+        int[] result = new int[count];
+        System.arraycopy(lines, 0, result, 0, count);
+        return result;
+    }
+}
@@ -0,0 +1,781 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.Arrays;
+
+
+// This class (referred as "game engine") deals with the Tic Tac Toe game logic
+public class TicTacToe {
+
+
+    // Enumeration of the possible game states
+    public enum GAME_STATE {
+        PLAYING,    // Game is not finished, someone has to play
+        A_WON,      // Player A won
+        B_WON,      // Player B won
+        TIE         // Grid is full and nobody won
+    };
+
+
+    // Enumeration of the possible results when playing (asking this game engine to play a cell by
+    // giving coordinates)
+
+    // This enumeration is not used in the application, since user can't play outside of bounds,
+    // and occupied cells can't be played, since the corresponding button is disabled
+
+    // However, if this game engine is used in CLI, it might be useful to deal with those exceptions
+    public enum PLAY_RESULT {
+        OK, // The "move" was valid (inside the grid boundaries and on an empty cell)
+        TAKEN_CELL, // Impossible to play at given coordinates: cell is occupied. Player has to play again
+        OUT_OF_BOUNDS   // The provided coordinated don't match with a cell of the grid. Player has to play again
+    };
+
+
+    public enum PLAYERS{
+        A, B
+    }
+
+
+
+
+    // Directions checked around the last played cell, as (line step, column step) couples:
+    // horizontal, vertical, North-West to South-East diagonal and North-East to South-West diagonal
+    private static final int[] DIRECTIONS = {
+            0, 1,
+            1, 0,
+            1, 1,
+            1, -1
+    };
+
+    // Zobrist key of "player B has to play", mixed into the hash of the position
+    private static final long SIDE_KEY = zobristKey(-1);
+
+    // A position of the classic 3x3 game can be packed in a single int (see encode):
+    // bits 0 to 8 hold the bitboard of player A, bits 9 to 17 the bitboard of player B,
+    // bit 18 is set when player B has to play, and bits 19 and 20 hold the game state
+    private static final int ENCODED_B_SHIFT = 9;
+    private static final int ENCODED_PLAYER_SHIFT = 18;
+    private static final int ENCODED_STATE_SHIFT = 19;
+    private static final int ENCODED_MASK = 0x1FF;
+
+    // Cached, since values() returns a new array at each call
+    private static final GAME_STATE[] STATES = GAME_STATE.values();
+
+    // Number of cells played, and of moves rejected (out of the grid, or on a taken cell), see Metrics
+    // Played cells are counted by batches of PLAYED_CELLS_BATCH, and when the engine is reset, so that playing
+    // a cell touches no shared counter
+    private static final Metrics.Counter PLAY_CELL_COUNTER = Metrics.counter(Metrics.PLAY_CELL);
+    private static final Metrics.Counter REJECTED_COUNTER = Metrics.counter(Metrics.PLAY_CELL_REJECTED);
+    private static final int PLAYED_CELLS_BATCH = 1024;
+
+
+    private GAME_STATE _state;
+
+    private PLAYERS _currentPlayer;
+
+    // Dimensions of the grid, and number of aligned marks needed to win
+    private final int _width;
+    private final int _height;
+    private final int _winLength;
+    private final int _cellCount;
+
+    // The grid is stored as one bitboard per player, split in 64 bits words
+    // Bit number line * width + column is set when the player owns the cell
+    private final long[] _marksA;
+    private final long[] _marksB;
+
+    // Cells played since the beginning of the game (cell index line * width + column), and the game state
+    // before each of these moves, so that moves can be taken back
+    // The number of moves is also used to detect a full grid without scanning it
+    private final int[] _moves;
+    private final GAME_STATE[] _previousStates;
+    private int _moveCount;
+
+    // Marks set on the grid without being played (see TicTacToe(int)): they are not part of the moves
+    private int _setMarkCount;
+
+    // Cells played by this engine, and not counted yet in the PLAY_CELL metric
+    private int _uncountedCells;
+
+    // Version of the grid, incremented each time a cell changes, and version at which each cell last changed
+    // It lets a view redraw only the cells that changed since it last drew the grid
+    private int _version;
+    private final int[] _cellVersions;
+
+    // Symmetries of the grid (rotations and reflections): 8 for a square grid, 4 otherwise
+    // _symmetricCells[cell * _symmetryCount + s] is the cell where the symmetry s moves the given cell
+    private final int _symmetryCount;
+    private final int[] _symmetricCells;
+
+    // Zobrist keys of the cells, _zobristKeys[cell * 2] for player A and _zobristKeys[cell * 2 + 1] for player B
+    private final long[] _zobristKeys;
+
+    // Zobrist hash of the position transformed by each symmetry (_hashes[0] is the hash of the position itself)
+    // They are updated at each move, hence the canonical form is known without looking at the grid
+    private final long[] _hashes;
+
+    // On grids of up to 64 cells, bitboards of each player transformed by each symmetry (null otherwise)
+    private final long[] _symmetricMarksA;
+    private final long[] _symmetricMarksB;
+
+
+    // Initializes the game engine with the classic 3x3 grid, where three aligned marks win
+    public TicTacToe(){
+        this(3, 3, 3);
+    }
+
+
+    // Initializes the game engine with a classic 3x3 game, from a position packed by encode
+    // The order the marks were played in is not known: they are set on the grid, and can't be taken back
+    // The game state is found from the grid, and must be the encoded one
+    public TicTacToe(int encoding){
+        this(3, 3, 3);
+
+        int marksA = encoding & ENCODED_MASK;
+        int marksB = (encoding >>> ENCODED_B_SHIFT) & ENCODED_MASK;
+        PLAYERS player = decodeCurrentPlayer(encoding);
+        int countA = Integer.bitCount(marksA);
+        int countB = Integer.bitCount(marksB);
+
+        // The grid must be one that can be reached by playing alternately
+        if((marksA & marksB) != 0 || Math.abs(countA - countB) > 1
+                || (countA > countB && player == PLAYERS.A) || (countB > countA && player == PLAYERS.B)){
+            throw new IllegalArgumentException("Not a valid encoded position: " + Integer.toHexString(encoding));
+        }
+
+        // The marks are added to the hashes as if each player had played them, then the player who has to play is set
+        for(int marks = marksA | marksB; marks != 0; marks &= marks - 1){
+            int cell = Integer.numberOfTrailingZeros(marks);
+            _currentPlayer = ((marksA & (1 << cell)) != 0) ? PLAYERS.A : PLAYERS.B;
+            toggleHashes(cell);
+        }
+        if(((countA + countB) & 1) != 0){
+            for(int s = 0; s < _symmetryCount; s++){
+                _hashes[s] ^= SIDE_KEY;
+            }
+        }
+        _currentPlayer = PLAYERS.A;
+        setCurrentPlayer(player);
+
+        _marksA[0] = marksA;
+        _marksB[0] = marksB;
+        _setMarkCount = countA + countB;
+
+        // A player who won played the last move: the other one has to play
+        boolean aWon = hasAlignment(_marksA);
+        boolean bWon = hasAlignment(_marksB);
+
+        if(aWon && (bWon || player == PLAYERS.A) || bWon && player == PLAYERS.B){
+            throw new IllegalArgumentException("Not a valid encoded position: " + Integer.toHexString(encoding));
+        }
+
+        _state = aWon ? GAME_STATE.A_WON : bWon ? GAME_STATE.B_WON : GAME_STATE.PLAYING;
+        checkGridIsFull();
+
+        if(_state != decodeState(encoding)){
+            throw new IllegalArgumentException("Encoded state " + decodeState(encoding) + " doesn't match the grid: "
+                    + Integer.toHexString(encoding));
+        }
+    }
+
+
+    // Initializes the game engine with a grid of the given size, where winLength aligned marks win
+    public TicTacToe(int width, int height, int winLength){
+
+        if(width < 1 || height < 1){
+            throw new IllegalArgumentException("Grid size must be positive: " + width + "x" + height);
+        }
+        if(winLength < 1 || (winLength > width && winLength > height)){
+            throw new IllegalArgumentException("Win length " + winLength + " does not fit in a " + width + "x" + height + " grid");
+        }
+
+        _width = width;
+        _height = height;
+        _winLength = winLength;
+        _cellCount = width * height;
+
+        // Grid is empty at first
+        _marksA = new long[(_cellCount + 63) >>> 6];
+        _marksB = new long[_marksA.length];
+
+        _moves = new int[_cellCount];
+        _previousStates = new GAME_STATE[_cellCount];
+        _moveCount = 0;
+
+        _version = 0;
+        _cellVersions = new int[_cellCount];
+
+        // We compute where each symmetry moves each cell
+        _symmetryCount = (width == height) ? 8 : 4;
+        _symmetricCells = new int[_cellCount * _symmetryCount];
+        for(int cell = 0; cell < _cellCount; cell++){
+            for(int s = 0; s < _symmetryCount; s++){
+                _symmetricCells[cell * _symmetryCount + s] = symmetricCell(s, cell / width, cell % width);
+            }
+        }
+
+        _zobristKeys = new long[2 * _cellCount];
+        for(int i = 0; i < _zobristKeys.length; i++){
+            _zobristKeys[i] = zobristKey(i);
+        }
+
+        _hashes = new long[_symmetryCount];
+        _symmetricMarksA = (_cellCount <= 64) ? new long[_symmetryCount] : null;
+        _symmetricMarksB = (_cellCount <= 64) ? new long[_symmetryCount] : null;
+
+        // Player A is the first to play
+        _currentPlayer = PLAYERS.A;
+
+        // Of course, the game state is "Playing"
+        _state = GAME_STATE.PLAYING;
+    }
+
+
+
+    // Method that intent to play at the given coordinates (line and column numbers)
+    public PLAY_RESULT playCell(int line, int column){
+
+        // Check if the "move" occurs inside the grid boundaries
+        // if not, the "OUT_OF_BOUNDS" game state is returned
+        if(!playIsInBounds(line, column)){
+            REJECTED_COUNTER.add(1);
+            return PLAY_RESULT.OUT_OF_BOUNDS;
+
+        }else{
+
+            int cell = line * _width + column;
+            int word = cell >>> 6;
+            long cellBit = 1L << cell;
+
+            if(((_marksA[word] | _marksB[word]) & cellBit) == 0){   // if the cell is empty...
+
+                // We set the bit of the cell in the bitboard of the current player,
+                // then we check the game state around this cell only (a move can only
+                // complete an alignment that goes through it)
+                _previousStates[_moveCount] = _state;
+                _moves[_moveCount++] = cell;
+                if(++_uncountedCells == PLAYED_CELLS_BATCH){
+                    countPlayedCells();
+                }
+                _cellVersions[cell] = ++_version;
+                toggleHashes(cell);
+
+                if(_currentPlayer == PLAYERS.A){
+                    _marksA[word] |= cellBit;
+                    _currentPlayer = PLAYERS.B;
+                    checkGrid(_marksA, line, column, GAME_STATE.A_WON);
+                }else{
+                    _marksB[word] |= cellBit;
+                    _currentPlayer = PLAYERS.A;
+                    checkGrid(_marksB, line, column, GAME_STATE.B_WON);
+                }
+
+                // The "move" was performed, hence "OK" is the returned game state
+                return PLAY_RESULT.OK;
+
+
+            }else { // The cell is already taken
+                REJECTED_COUNTER.add(1);
+                return PLAY_RESULT.TAKEN_CELL;
+            }
+        }
+    }
+
+
+
+    // Adds the cells played since the last count to the PLAY_CELL metric
+    private void countPlayedCells(){
+        if(_uncountedCells != 0){
+            PLAY_CELL_COUNTER.add(_uncountedCells);
+            _uncountedCells = 0;
+        }
+    }
+
+
+    // Simply checks if the provided coordinates refer to a cell in the grid
+    private boolean playIsInBounds(int line, int column){
+
+        // If line number is between 0 and height - 1, and column number is between 0 and width - 1
+        // then the "move" is inside grid boundaries
+        return (line > -1 && line < _height && column > -1 && column < _width);
+    }
+
+
+    // Packs the whole position of a classic 3x3 game (grid, player who has to play and game state) in an int,
+    // that can be stored or sent as is, and read with the decode methods or the TicTacToe(int) constructor
+    public int encode(){
+
+        if(_width != 3 || _height != 3){
+            throw new UnsupportedOperationException("Only the classic 3x3 grid can be encoded in an int");
+        }
+
+        return (int) _marksA[0]
+                | ((int) _marksB[0] << ENCODED_B_SHIFT)
+                | ((_currentPlayer == PLAYERS.B) ? 1 << ENCODED_PLAYER_SHIFT : 0)
+                | (_state.ordinal() << ENCODED_STATE_SHIFT);
+    }
+
+
+    // Returns the content of a cell of an encoded position, as getCell does: 0 if empty, 1 for player A, 3 for player B
+    public static int decodeCell(int encoding, int line, int column){
+        int cellBit = 1 << (line * 3 + column);
+
+        if((encoding & cellBit) != 0){
+            return 1;
+        }
+
+        return ((encoding & (cellBit << ENCODED_B_SHIFT)) != 0) ? 3 : 0;
+    }
+
+    // Returns the player who has to play in an encoded position
+    public static PLAYERS decodeCurrentPlayer(int encoding){
+        return ((encoding >>> ENCODED_PLAYER_SHIFT & 1) == 0) ? PLAYERS.A : PLAYERS.B;
+    }
+
+    // Returns the game state of an encoded position
+    public static GAME_STATE decodeState(int encoding){
+        return STATES[(encoding >>> ENCODED_STATE_SHIFT) & 3];
+    }
+
+
+    // Writes the cells that can be played (cell index line * width + column) in the given array, which must hold
+    // at least getCellCount() values, and returns how many there are (none once the game is finished)
+    public int getLegalMoves(int[] moves){
+
+        if(_state != GAME_STATE.PLAYING){
+            return 0;
+        }
+
+        int count = 0;
+
+        for(int word = 0; word < _marksA.length; word++){
+            long empty = emptyCellsOfWord(word);
+
+            while(empty != 0){
+                moves[count++] = (word << 6) + Long.numberOfTrailingZeros(empty);
+                empty &= empty - 1;
+            }
+        }
+
+        return count;
+    }
+
+
+    // Returns the cells that can be played as a bitboard (bit line * width + column is set for an empty cell),
+    // on grids of up to 64 cells. The bitboard is empty once the game is finished
+    public long getLegalMovesMask(){
+
+        if(_cellCount > 64){
+            throw new UnsupportedOperationException("Legal moves bitboard needs a grid of 64 cells or less");
+        }
+
+        return (_state == GAME_STATE.PLAYING) ? emptyCellsOfWord(0) : 0;
+    }
+
+
+    // Returns the empty cells of the given 64 bits word of the grid
+    private long emptyCellsOfWord(int word){
+        long empty = ~(_marksA[word] | _marksB[word]);
+
+        // The last word may have bits that don't match a cell
+        int cellsInWord = _cellCount - (word << 6);
+        if(cellsInWord < 64){
+            empty &= (1L << cellsInWord) - 1;
+        }
+
+        return empty;
+    }
+
+
+    // Takes back the last move: the cell is emptied, and the player who played it has to play again
+    // Returns false if there is no move to take back
+    public boolean undo(){
+
+        if(_moveCount == 0){
+            return false;
+        }
+
+        int cell = _moves[--_moveCount];
+        _state = _previousStates[_moveCount];
+        _cellVersions[cell] = ++_version;
+        _currentPlayer = (_currentPlayer == PLAYERS.A) ? PLAYERS.B : PLAYERS.A;
+
+        // The same toggle as when the move was played removes it from the hashes
+        toggleHashes(cell);
+
+        if(_currentPlayer == PLAYERS.A){
+            _marksA[cell >>> 6] &= ~(1L << cell);
+        }else{
+            _marksB[cell >>> 6] &= ~(1L << cell);
+        }
+
+        return true;
+    }
+
+
+    // Empties the grid to start a new game, as a newly created game engine would be
+    public void reset(){
+        countPlayedCells();
+
+        // Every marked cell changes
+        for(int word = 0; word < _marksA.length; word++){
+            long marked = _marksA[word] | _marksB[word];
+
+            while(marked != 0){
+                _cellVersions[(word << 6) + Long.numberOfTrailingZeros(marked)] = ++_version;
+                marked &= marked - 1;
+            }
+        }
+
+        Arrays.fill(_marksA, 0);
+        Arrays.fill(_marksB, 0);
+        Arrays.fill(_hashes, 0);
+
+        if(_symmetricMarksA != null){
+            Arrays.fill(_symmetricMarksA, 0);
+            Arrays.fill(_symmetricMarksB, 0);
+        }
+
+        _moveCount = 0;
+        _setMarkCount = 0;
+        _currentPlayer = PLAYERS.A;
+        _state = GAME_STATE.PLAYING;
+    }
+
+
+    // Copies the whole position and history of another game engine, which must have the same grid size
+    public void copyFrom(TicTacToe other){
+
+        if(other._width != _width || other._height != _height || other._winLength != _winLength){
+            throw new IllegalArgumentException("Can't copy a " + other._width + "x" + other._height
+                    + " game into a " + _width + "x" + _height + " game");
+        }
+
+        // Cells whose mark differs between the two grids change
+        for(int word = 0; word < _marksA.length; word++){
+            long changed = (_marksA[word] ^ other._marksA[word]) | (_marksB[word] ^ other._marksB[word]);
+
+            while(changed != 0){
+                _cellVersions[(word << 6) + Long.numberOfTrailingZeros(changed)] = ++_version;
+                changed &= changed - 1;
+            }
+        }
+
+        System.arraycopy(other._marksA, 0, _marksA, 0, _marksA.length);
+        System.arraycopy(other._marksB, 0, _marksB, 0, _marksB.length);
+        System.arraycopy(other._hashes, 0, _hashes, 0, _hashes.length);
+
+        if(_symmetricMarksA != null){
+            System.arraycopy(other._symmetricMarksA, 0, _symmetricMarksA, 0, _symmetryCount);
+            System.arraycopy(other._symmetricMarksB, 0, _symmetricMarksB, 0, _symmetryCount);
+        }
+
+        System.arraycopy(other._moves, 0, _moves, 0, other._moveCount);
+        System.arraycopy(other._previousStates, 0, _previousStates, 0, other._moveCount);
+        _moveCount = other._moveCount;
+        _setMarkCount = other._setMarkCount;
+
+        _currentPlayer = other._currentPlayer;
+        _state = other._state;
+    }
+
+
+    // Adds (or removes) the mark of the current player on the given cell in the hashes and symmetric bitboards,
+    // and toggles the player who has to play
+    private void toggleHashes(int cell){
+        int player = (_currentPlayer == PLAYERS.A) ? 0 : 1;
+        long[] symmetricMarks = (player == 0) ? _symmetricMarksA : _symmetricMarksB;
+        int first = cell * _symmetryCount;
+
+        for(int s = 0; s < _symmetryCount; s++){
+            int symmetric = _symmetricCells[first + s];
+            _hashes[s] ^= _zobristKeys[symmetric * 2 + player] ^ SIDE_KEY;
+
+            if(symmetricMarks != null){
+                symmetricMarks[s] ^= 1L << symmetric;
+            }
+        }
+    }
+
+
+    // Returns the cell where the given symmetry moves the cell (line, column)
+    // Symmetries 0 to 3 are the identity, the horizontal and vertical reflections and the half turn,
+    // symmetries 4 to 7 only exist on square grids: reflections along both diagonals and quarter turns
+    private int symmetricCell(int symmetry, int line, int column){
+        int lastLine = _height - 1;
+        int lastColumn = _width - 1;
+
+        switch (symmetry){
+            case 1:
+                return line * _width + lastColumn - column;
+            case 2:
+                return (lastLine - line) * _width + column;
+            case 3:
+                return (lastLine - line) * _width + lastColumn - column;
+            case 4:
+                return column * _width + line;
+            case 5:
+                return column * _width + lastLine - line;
+            case 6:
+                return (lastColumn - column) * _width + line;
+            case 7:
+                return (lastColumn - column) * _width + lastLine - line;
+            default:
+                return line * _width + column;
+        }
+    }
+
+
+    // Computes a pseudo random Zobrist key from its index (SplitMix64 generator), so that hashes don't depend
+    // on the engine instance
+    private static long zobristKey(int index){
+        long z = 0x3C6EF372FE94F82AL + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+
+
+    // Checks the game state after the player owning the given bitboard played at (line, column)
+    private void checkGrid(long[] playerMarks, int line, int column, GAME_STATE winningState){
+
+        // For each of the four directions going through the played cell...
+        for(int i = 0; i < DIRECTIONS.length; i += 2){
+
+            // ... we count the marks aligned with the played cell, on both sides of it
+            int aligned = 1
+                    + countAligned(playerMarks, line, column, DIRECTIONS[i], DIRECTIONS[i + 1])
+                    + countAligned(playerMarks, line, column, -DIRECTIONS[i], -DIRECTIONS[i + 1]);
+
+            if(aligned >= _winLength){
+                _state = winningState;
+                return;
+            }
+        }
+
+        // if no player won, maybe the grid is full, and therefore the game state needs to be set to "TIE"
+        checkGridIsFull();
+    }
+
+
+    // Counts the consecutive marks of a bitboard starting next to (line, column) and following the given step
+    // There is no need to count further than the number of marks still needed to win
+    private int countAligned(long[] playerMarks, int line, int column, int lineStep, int columnStep){
+        int count = 0;
+        int i = line + lineStep;
+        int j = column + columnStep;
+
+        while(count < _winLength - 1 && playIsInBounds(i, j) && isMarked(playerMarks, i * _width + j)){
+            count++;
+            i += lineStep;
+            j += columnStep;
+        }
+
+        return count;
+    }
+
+
+    // Tells if the given bitboard holds winLength aligned marks, wherever they are
+    private boolean hasAlignment(long[] playerMarks){
+        for(int word = 0; word < playerMarks.length; word++){
+            for(long marks = playerMarks[word]; marks != 0; marks &= marks - 1){
+                int cell = (word << 6) + Long.numberOfTrailingZeros(marks);
+
+                for(int i = 0; i < DIRECTIONS.length; i += 2){
+                    if(1 + countAligned(playerMarks, cell / _width, cell % _width, DIRECTIONS[i], DIRECTIONS[i + 1]) >= _winLength){
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    // Tells if the given cell is set in the given bitboard
+    private static boolean isMarked(long[] marks, int cell){
+        return (marks[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+
+
+    // Checks if the grid is full
+    public void checkGridIsFull(){
+
+        // The grid is full when as many cells have been played as the grid contains
+        if(_state == GAME_STATE.PLAYING && getMarkCount() == _cellCount){
+            _state = GAME_STATE.TIE;
+        }
+    }
+
+
+    // Getters and setters
+
+    // Builds a copy of the grid from the bitboards, with a 1 for player A and a 3 for player B
+    public int[][]getGrid(){
+        int[][] grid = new int[_height][_width];
+
+        for(int i = 0; i<_height; i++){
+            for(int j = 0; j<_width; j++){
+                grid[i][j] = getCell(i, j);
+            }
+        }
+
+        return grid;
+    }
+
+
+    // Version of the grid, incremented each time a cell changes
+    public int getVersion(){
+        return _version;
+    }
+
+
+    // Writes in the given array the cells (cell index line * width + column) that changed since the given version
+    // of the grid, and returns their number. The array must be able to hold all the cells of the grid
+    public int getChangedCells(int sinceVersion, int[] cells){
+        int count = 0;
+
+        if(sinceVersion == _version){
+            return 0;
+        }
+
+        for(int cell = 0; cell < _cellCount; cell++){
+            // The difference is compared, so that it still works once the version wrapped around
+            if(_cellVersions[cell] - sinceVersion > 0){
+                cells[count++] = cell;
+            }
+        }
+
+        return count;
+    }
+
+
+    // Returns 0 for an empty cell, 1 if player A played it and 3 if player B did
+    public int getCell(int line, int column){
+        int cell = line * _width + column;
+
+        if(isMarked(_marksA, cell)){
+            return 1;
+        }
+
+        return isMarked(_marksB, cell) ? 3 : 0;
+    }
+
+
+    public int getWidth(){
+        return _width;
+    }
+
+    public int getHeight(){
+        return _height;
+    }
+
+    public int getWinLength(){
+        return _winLength;
+    }
+
+    public int getCellCount(){
+        return _cellCount;
+    }
+
+    // Number of moves played since the beginning of the game (or since the position was decoded, see TicTacToe(int))
+    public int getMoveCount(){
+        return _moveCount;
+    }
+
+    // Number of marks on the grid: the moves played, and the marks of a decoded position
+    public int getMarkCount(){
+        return _setMarkCount + _moveCount;
+    }
+
+    // Returns the cell index (line * width + column) of the given move, 0 being the first move of the game
+    public int getMove(int index){
+        if(index < 0 || index >= _moveCount){
+            throw new IndexOutOfBoundsException("Move " + index + " has not been played");
+        }
+
+        return _moves[index];
+    }
+
+    // Returns the bitboard of the given player, as long as the grid has 64 cells or less
+    // (only the first 64 cells are returned on bigger grids)
+    long getMarks(PLAYERS player){
+        return (player == PLAYERS.A) ? _marksA[0] : _marksB[0];
+    }
+
+
+
+    public PLAYERS getCurrentPlayer(){
+        return _currentPlayer;
+    }
+
+    // Useful to set who plays first
+    public void setCurrentPlayer(PLAYERS player){
+
+        // The player who has to play is part of the hash
+        if(player != _currentPlayer){
+            for(int s = 0; s < _symmetryCount; s++){
+                _hashes[s] ^= SIDE_KEY;
+            }
+        }
+
+        _currentPlayer = player;
+    }
+
+
+
+    // Returns the 64 bits Zobrist hash of the position (grid and player who has to play)
+    public long getHash(){
+        return _hashes[0];
+    }
+
+    // Number of symmetries of the grid: 8 for a square grid, 4 otherwise
+    public int getSymmetryCount(){
+        return _symmetryCount;
+    }
+
+    // Returns the symmetry that gives the canonical form of the position: all the positions that are
+    // rotations or reflections of each other have the same canonical form
+    public int getCanonicalSymmetry(){
+        int canonical = 0;
+
+        for(int s = 1; s < _symmetryCount; s++){
+            if(_hashes[s] < _hashes[canonical]){
+                canonical = s;
+            }
+        }
+
+        return canonical;
+    }
+
+    // Returns the Zobrist hash of the canonical form of the position
+    public long getCanonicalHash(){
+        return _hashes[getCanonicalSymmetry()];
+    }
+
+    // Returns the bitboard of the given player in the canonical form of the position (grids up to 64 cells)
+    public long getCanonicalMarks(PLAYERS player){
+        if(_symmetricMarksA == null){
+            throw new UnsupportedOperationException("Canonical bitboards need a grid of 64 cells or less");
+        }
+
+        int canonical = getCanonicalSymmetry();
+        return (player == PLAYERS.A) ? _symmetricMarksA[canonical] : _symmetricMarksB[canonical];
+    }
+
+    // Returns the cell index (line * width + column) where the given symmetry moves the given cell
+    // Useful to translate a move found on the canonical form back to the real grid, and the other way round
+    public int transformCell(int symmetry, int cell){
+        return _symmetricCells[cell * _symmetryCount + symmetry];
+    }
+
+
+
+    public GAME_STATE getState() {
+        return _state;
+    }
+
+
+}
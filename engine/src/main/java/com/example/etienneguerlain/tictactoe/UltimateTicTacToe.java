@@ -0,0 +1,331 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.Random;
+
+
+// This class is the game engine of Ultimate Tic Tac Toe: nine classic 3x3 grids (referred as "boards"), laid out
+// as a 3x3 grid themselves (referred as "meta board")
+// The cell a player plays decides the board where the opponent has to play next. A board that is won or full
+// is closed: a player sent there can play in any open board instead. Boards won form the meta board,
+// where three aligned boards win the game
+
+// Boards and cells are numbered line * 3 + column, and a move is the number board * 9 + cell
+// The whole position is packed in a few ints: nine 9 bits masks of marks per player, and 9 bits masks of the boards
+// won by each player and of the full ones. Hence playing, listing the legal moves and playing random games,
+// as tree searches do by millions, only handle bits
+public class UltimateTicTacToe {
+
+
+    public static final int BOARD_COUNT = 9;
+    public static final int CELL_COUNT = BOARD_COUNT * 9;
+
+    // Board the next player has to play in, when any open board can be played
+    public static final int ANY_BOARD = -1;
+
+    private static final int FULL_MASK = 0x1FF;
+
+    // WINNING[mask] tells if the 3x3 mask of marks holds three aligned marks
+    // It is computed once, with the rules of the classic game engine, so that both engines agree
+    private static final boolean[] WINNING = new boolean[FULL_MASK + 1];
+
+    static {
+        TicTacToe game = new TicTacToe();
+
+        for(int mask = 0; mask <= FULL_MASK; mask++){
+            game.reset();
+
+            // Only player A plays: the cells of the mask are played one by one, giving the hand back to A each time
+            for(int cell = 0; cell < 9 && game.getState() == TicTacToe.GAME_STATE.PLAYING; cell++){
+                if((mask & (1 << cell)) != 0){
+                    game.setCurrentPlayer(TicTacToe.PLAYERS.A);
+                    game.playCell(cell / 3, cell % 3);
+                }
+            }
+
+            WINNING[mask] = (game.getState() == TicTacToe.GAME_STATE.A_WON);
+        }
+    }
+
+
+    private TicTacToe.GAME_STATE _state;
+
+    private TicTacToe.PLAYERS _currentPlayer;
+
+    // Marks of each player on each board (bit cell set when the player owns the cell)
+    private final int[] _boardsA = new int[BOARD_COUNT];
+    private final int[] _boardsB = new int[BOARD_COUNT];
+
+    // Boards won by each player, and boards full without a winner (bit board set)
+    private int _metaA;
+    private int _metaB;
+    private int _metaFull;
+
+    // Board where the next player has to play, or ANY_BOARD
+    private int _forcedBoard;
+
+    // Moves played since the beginning of the game, and the forced board before each of them, so that moves
+    // can be taken back
+    private final int[] _moves = new int[CELL_COUNT];
+    private final int[] _previousForcedBoards = new int[CELL_COUNT];
+    private int _moveCount;
+
+
+    // Initializes the game engine with empty boards, player A being the first to play in any board
+    public UltimateTicTacToe(){
+        reset();
+    }
+
+
+    // Empties the boards to start a new game, as a newly created game engine would be
+    public void reset(){
+
+        for(int board = 0; board < BOARD_COUNT; board++){
+            _boardsA[board] = 0;
+            _boardsB[board] = 0;
+        }
+
+        _metaA = 0;
+        _metaB = 0;
+        _metaFull = 0;
+        _forcedBoard = ANY_BOARD;
+        _moveCount = 0;
+        _currentPlayer = TicTacToe.PLAYERS.A;
+        _state = TicTacToe.GAME_STATE.PLAYING;
+    }
+
+
+    // Copies the whole position and history of another game engine
+    public void copyFrom(UltimateTicTacToe other){
+        System.arraycopy(other._boardsA, 0, _boardsA, 0, BOARD_COUNT);
+        System.arraycopy(other._boardsB, 0, _boardsB, 0, BOARD_COUNT);
+        System.arraycopy(other._moves, 0, _moves, 0, other._moveCount);
+        System.arraycopy(other._previousForcedBoards, 0, _previousForcedBoards, 0, other._moveCount);
+
+        _metaA = other._metaA;
+        _metaB = other._metaB;
+        _metaFull = other._metaFull;
+        _forcedBoard = other._forcedBoard;
+        _moveCount = other._moveCount;
+        _currentPlayer = other._currentPlayer;
+        _state = other._state;
+    }
+
+
+
+    // Method that intent to play the given cell of the given board
+    // A cell of a board that can't be played now (closed, or not the forced board) is refused as OUT_OF_BOUNDS,
+    // like a cell out of the boards: the player has to play again
+    public TicTacToe.PLAY_RESULT playCell(int board, int cell){
+
+        if(_state != TicTacToe.GAME_STATE.PLAYING || board < 0 || board >= BOARD_COUNT || cell < 0 || cell >= 9
+                || (getPlayableBoards() & (1 << board)) == 0){
+            return TicTacToe.PLAY_RESULT.OUT_OF_BOUNDS;
+        }
+
+        if(((_boardsA[board] | _boardsB[board]) & (1 << cell)) != 0){
+            return TicTacToe.PLAY_RESULT.TAKEN_CELL;
+        }
+
+        playMove(board * 9 + cell);
+        return TicTacToe.PLAY_RESULT.OK;
+    }
+
+
+    // Plays a legal move (board * 9 + cell), as listed by getLegalMoves, without checking it
+    public void playMove(int move){
+        int board = move / 9;
+        int cellBit = 1 << (move - board * 9);
+
+        _previousForcedBoards[_moveCount] = _forcedBoard;
+        _moves[_moveCount++] = move;
+
+        // A move can only close its own board, and the game can only be won by the player who closed it
+        if(_currentPlayer == TicTacToe.PLAYERS.A){
+            int marks = _boardsA[board] |= cellBit;
+            _currentPlayer = TicTacToe.PLAYERS.B;
+
+            if(WINNING[marks]){
+                _metaA |= 1 << board;
+                if(WINNING[_metaA]){
+                    _state = TicTacToe.GAME_STATE.A_WON;
+                }
+            }else if((marks | _boardsB[board]) == FULL_MASK){
+                _metaFull |= 1 << board;
+            }
+        }else{
+            int marks = _boardsB[board] |= cellBit;
+            _currentPlayer = TicTacToe.PLAYERS.A;
+
+            if(WINNING[marks]){
+                _metaB |= 1 << board;
+                if(WINNING[_metaB]){
+                    _state = TicTacToe.GAME_STATE.B_WON;
+                }
+            }else if((marks | _boardsA[board]) == FULL_MASK){
+                _metaFull |= 1 << board;
+            }
+        }
+
+        // The opponent is sent to the board matching the played cell, unless it is closed
+        int nextBoard = move - board * 9;
+        _forcedBoard = ((getClosedBoards() & (1 << nextBoard)) == 0) ? nextBoard : ANY_BOARD;
+
+        // If every board is closed and nobody aligned three boards, nobody can win anymore
+        if(_state == TicTacToe.GAME_STATE.PLAYING && getClosedBoards() == FULL_MASK){
+            _state = TicTacToe.GAME_STATE.TIE;
+        }
+    }
+
+
+    // Takes back the last move: the cell is emptied, and the player who played it has to play again
+    // Returns false if there is no move to take back
+    public boolean undo(){
+
+        if(_moveCount == 0){
+            return false;
+        }
+
+        int move = _moves[--_moveCount];
+        int board = move / 9;
+        int cellBit = 1 << (move - board * 9);
+
+        _forcedBoard = _previousForcedBoards[_moveCount];
+        _currentPlayer = (_currentPlayer == TicTacToe.PLAYERS.A) ? TicTacToe.PLAYERS.B : TicTacToe.PLAYERS.A;
+
+        // The board was open before the move (closed boards can't be played), and so was the game
+        _boardsA[board] &= ~cellBit;
+        _boardsB[board] &= ~cellBit;
+        _metaA &= ~(1 << board);
+        _metaB &= ~(1 << board);
+        _metaFull &= ~(1 << board);
+        _state = TicTacToe.GAME_STATE.PLAYING;
+
+        return true;
+    }
+
+
+
+    // Returns the boards the next player can play in, as a 9 bits mask (none once the game is finished)
+    public int getPlayableBoards(){
+
+        if(_state != TicTacToe.GAME_STATE.PLAYING){
+            return 0;
+        }
+
+        return (_forcedBoard == ANY_BOARD) ? ~getClosedBoards() & FULL_MASK : 1 << _forcedBoard;
+    }
+
+
+    // Writes the moves that can be played (board * 9 + cell) in the given array, which must hold
+    // at least CELL_COUNT values, and returns how many there are (none once the game is finished)
+    public int getLegalMoves(int[] moves){
+        int boards = getPlayableBoards();
+        int count = 0;
+
+        while(boards != 0){
+            int board = Integer.numberOfTrailingZeros(boards);
+            int empty = ~(_boardsA[board] | _boardsB[board]) & FULL_MASK;
+
+            while(empty != 0){
+                moves[count++] = board * 9 + Integer.numberOfTrailingZeros(empty);
+                empty &= empty - 1;
+            }
+
+            boards &= boards - 1;
+        }
+
+        return count;
+    }
+
+
+    // Plays random legal moves until the game ends, and returns the final state
+    // No array is filled: the n-th empty cell of the playable boards is picked straight from the masks
+    public TicTacToe.GAME_STATE playRandomGame(Random random){
+
+        while(_state == TicTacToe.GAME_STATE.PLAYING){
+            int boards = getPlayableBoards();
+            int count = 0;
+
+            for(int b = boards; b != 0; b &= b - 1){
+                int board = Integer.numberOfTrailingZeros(b);
+                count += 9 - Integer.bitCount(_boardsA[board] | _boardsB[board]);
+            }
+
+            int index = random.nextInt(count);
+
+            for(int b = boards; ; b &= b - 1){
+                int board = Integer.numberOfTrailingZeros(b);
+                int empty = ~(_boardsA[board] | _boardsB[board]) & FULL_MASK;
+                int emptyCount = Integer.bitCount(empty);
+
+                if(index < emptyCount){
+                    for(; index > 0; index--){
+                        empty &= empty - 1;
+                    }
+                    playMove(board * 9 + Integer.numberOfTrailingZeros(empty));
+                    break;
+                }
+                index -= emptyCount;
+            }
+        }
+
+        return _state;
+    }
+
+
+
+    // Getters
+
+    // Returns 0 for an empty cell, 1 if player A played it and 3 if player B did (as TicTacToe.getCell)
+    public int getCell(int board, int cell){
+
+        if((_boardsA[board] & (1 << cell)) != 0){
+            return 1;
+        }
+
+        return ((_boardsB[board] & (1 << cell)) != 0) ? 3 : 0;
+    }
+
+    // Returns the state of the given board: PLAYING while it is open, then who won it, or TIE if it is full
+    public TicTacToe.GAME_STATE getBoardState(int board){
+        int boardBit = 1 << board;
+
+        if((_metaA & boardBit) != 0){
+            return TicTacToe.GAME_STATE.A_WON;
+        }else if((_metaB & boardBit) != 0){
+            return TicTacToe.GAME_STATE.B_WON;
+        }
+
+        return ((_metaFull & boardBit) != 0) ? TicTacToe.GAME_STATE.TIE : TicTacToe.GAME_STATE.PLAYING;
+    }
+
+    // Boards won or full, as a 9 bits mask
+    public int getClosedBoards(){
+        return _metaA | _metaB | _metaFull;
+    }
+
+    public int getForcedBoard(){
+        return _forcedBoard;
+    }
+
+    public int getMoveCount(){
+        return _moveCount;
+    }
+
+    // Returns the given move (board * 9 + cell), 0 being the first move of the game
+    public int getMove(int index){
+        if(index < 0 || index >= _moveCount){
+            throw new IndexOutOfBoundsException("Move " + index + " was not played");
+        }
+
+        return _moves[index];
+    }
+
+    public TicTacToe.PLAYERS getCurrentPlayer(){
+        return _currentPlayer;
+    }
+
+    public TicTacToe.GAME_STATE getState(){
+        return _state;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+public class CpuPlayersTest {
+
+
+    // On grids too big to be solved, IMPOSSIBLE searches during its thinking time instead of solving the grid
+    @Test
+    public void impossibleAnswersWithinItsThinkingTimeOnBigGrids(){
+        int[][] grids = {{5, 5, 4}, {6, 6, 5}};
+
+        for(int[] grid : grids){
+            TicTacToe game = new TicTacToe(grid[0], grid[1], grid[2]);
+            CpuPlayer player = CpuPlayers.create(Settings.MODES.IMPOSSIBLE, game.getCellCount(), null, new Random(1), 2);
+
+            try{
+                long start = System.nanoTime();
+                int move = player.chooseMove(game);
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                assertTrue("Move found in " + elapsed + "ms", elapsed < 2 * CpuPlayers.IMPOSSIBLE_THINKING_TIME);
+                assertTrue(move >= 0 && move < game.getCellCount());
+            }finally{
+                CpuPlayers.release(player);
+            }
+        }
+    }
+
+
+    // Grids small enough are solved: IMPOSSIBLE keeps the value of every position
+    @Test
+    public void impossibleSolvesSmallGrids(){
+        CpuPlayer player = CpuPlayers.create(Settings.MODES.IMPOSSIBLE, 9, null, new Random(2), 1);
+
+        for(TicTacToe game : Minimax.classicPositions(TicTacToe.PLAYERS.A)){
+            if(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                assertEquals(Minimax.value(game), Minimax.valueOfMove(game, player.chooseMove(game)));
+            }
+        }
+
+        TicTacToe game = new TicTacToe(4, 4, 4);
+        player = CpuPlayers.create(Settings.MODES.IMPOSSIBLE, game.getCellCount(), null, new Random(3), 1);
+        long start = System.nanoTime();
+        player.chooseMove(game);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(CpuPlayers.IMPOSSIBLE_THINKING_TIME));
+    }
+}
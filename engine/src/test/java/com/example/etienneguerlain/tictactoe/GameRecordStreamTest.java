@@ -0,0 +1,169 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+public class GameRecordStreamTest {
+
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    // Records written by batches are read back in the same order, whatever the batch sizes
+    @Test
+    public void recordsRoundTrip() throws IOException {
+        long[] records = randomRecords(1000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(bytes), 7);
+        writer.write(records, 0, 500);
+        for(int i = 500; i < records.length; i++){
+            writer.write(records[i]);
+        }
+        writer.close();
+
+        // 8 bytes per record, and nothing else
+        assertEquals(records.length * 8, bytes.size());
+
+        GameRecordReader reader = new GameRecordReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), 5);
+        assertArrayEquals(records, readAll(reader, 3));
+    }
+
+
+    @Test
+    public void recordsRoundTripThroughFile() throws IOException {
+        long[] records = randomRecords(20000);
+        File file = new File(folder.getRoot(), "games.bin");
+
+        GameRecordWriter writer = new GameRecordWriter(new FileOutputStream(file).getChannel());
+        writer.write(records, 0, records.length);
+        writer.close();
+
+        GameRecordReader reader = new GameRecordReader(new FileInputStream(file).getChannel());
+        assertArrayEquals(records, readAll(reader, 4096));
+    }
+
+
+    // A channel giving a few bytes at a time splits records between reads: they are put back together
+    @Test
+    public void readsRecordsSplitBetweenReads() throws IOException {
+        long[] records = randomRecords(100);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(bytes));
+        writer.write(records, 0, records.length);
+        writer.close();
+
+        GameRecordReader reader = new GameRecordReader(new TrickleChannel(bytes.toByteArray(), 3), 4);
+        assertArrayEquals(records, readAll(reader, 10));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedRecord() throws IOException {
+        GameRecordReader reader = new GameRecordReader(Channels.newChannel(new ByteArrayInputStream(new byte[8 * 3 + 5])));
+        readAll(reader, 16);
+    }
+
+
+    @Test
+    public void emptyStreamHasNoRecord() throws IOException {
+        GameRecordReader reader = new GameRecordReader(Channels.newChannel(new ByteArrayInputStream(new byte[0])));
+        assertEquals(-1, reader.read(new long[4]));
+    }
+
+
+    // Records of random games of the classic grid, finished or not
+    private static long[] randomRecords(int count){
+        Random random = new Random(7);
+        TicTacToe game = new TicTacToe();
+        int[] moves = new int[9];
+        long[] records = new long[count];
+
+        for(int i = 0; i < count; i++){
+            game.reset();
+            game.setCurrentPlayer(random.nextBoolean() ? TicTacToe.PLAYERS.A : TicTacToe.PLAYERS.B);
+
+            int length = random.nextInt(10);
+            while(game.getState() == TicTacToe.GAME_STATE.PLAYING && game.getMoveCount() < length){
+                int moveCount = game.getLegalMoves(moves);
+                Minimax.play(game, moves[random.nextInt(moveCount)]);
+            }
+
+            records[i] = GameRecord.of(game);
+        }
+
+        return records;
+    }
+
+
+    // Reads all the records, arrayLength at most at a time
+    private static long[] readAll(GameRecordReader reader, int arrayLength) throws IOException {
+        long[] all = new long[0];
+        long[] records = new long[arrayLength];
+        int count;
+
+        try{
+            while((count = reader.read(records)) >= 0){
+                all = Arrays.copyOf(all, all.length + count);
+                System.arraycopy(records, 0, all, all.length - count, count);
+            }
+        }finally{
+            reader.close();
+        }
+
+        return all;
+    }
+
+
+    // Gives the bytes of an array, at most chunkSize at a time
+    private static class TrickleChannel implements ReadableByteChannel {
+
+        private final ByteBuffer _bytes;
+        private final int _chunkSize;
+
+        TrickleChannel(byte[] bytes, int chunkSize){
+            _bytes = ByteBuffer.wrap(bytes);
+            _chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(ByteBuffer destination){
+            if(!_bytes.hasRemaining()){
+                return -1;
+            }
+
+            int count = Math.min(_chunkSize, Math.min(_bytes.remaining(), destination.remaining()));
+            for(int i = 0; i < count; i++){
+                destination.put(_bytes.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen(){
+            return true;
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+}
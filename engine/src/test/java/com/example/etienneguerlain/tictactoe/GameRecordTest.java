@@ -0,0 +1,103 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class GameRecordTest {
+
+
+    // Every game of the classic grid, whoever plays first, is replayed as it was recorded
+    @Test
+    public void everyGameRoundTrips(){
+        assertEquals(255168, checkGames(TicTacToe.PLAYERS.A));
+        assertEquals(255168, checkGames(TicTacToe.PLAYERS.B));
+    }
+
+
+    // Games that are not finished can be recorded as well
+    @Test
+    public void unfinishedGameRoundTrips(){
+        TicTacToe game = new TicTacToe();
+        game.setCurrentPlayer(TicTacToe.PLAYERS.B);
+        game.playCell(1, 1);
+        game.playCell(0, 2);
+
+        long record = GameRecord.of(game);
+
+        assertEquals(2, GameRecord.getMoveCount(record));
+        assertEquals(4, GameRecord.getMove(record, 0));
+        assertEquals(2, GameRecord.getMove(record, 1));
+        assertEquals(TicTacToe.PLAYERS.B, GameRecord.getFirstPlayer(record));
+        assertEquals(TicTacToe.GAME_STATE.PLAYING, GameRecord.getState(record));
+        assertReplayed(game, record);
+    }
+
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsMovesNotRecorded(){
+        TicTacToe game = new TicTacToe();
+        game.playCell(0, 0);
+
+        GameRecord.getMove(GameRecord.of(game), 1);
+    }
+
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void rejectsOtherGrids(){
+        GameRecord.of(new TicTacToe(4, 4, 3));
+    }
+
+
+    // Plays all the games where the given player plays first, checks the record of each finished one,
+    // and returns how many there are
+    private static int checkGames(TicTacToe.PLAYERS firstPlayer){
+        TicTacToe game = new TicTacToe();
+        game.setCurrentPlayer(firstPlayer);
+
+        return checkGames(game, firstPlayer, new TicTacToe());
+    }
+
+    private static int checkGames(TicTacToe game, TicTacToe.PLAYERS firstPlayer, TicTacToe replayed){
+
+        if(game.getState() != TicTacToe.GAME_STATE.PLAYING){
+            long record = GameRecord.of(game);
+
+            assertEquals(game.getMoveCount(), GameRecord.getMoveCount(record));
+            assertEquals(firstPlayer, GameRecord.getFirstPlayer(record));
+            assertEquals(game.getState(), GameRecord.getState(record));
+            for(int i = 0; i < game.getMoveCount(); i++){
+                assertEquals(game.getMove(i), GameRecord.getMove(record, i));
+            }
+
+            GameRecord.replay(record, replayed);
+            assertEquals(game.getHash(), replayed.getHash());
+            assertEquals(game.getState(), replayed.getState());
+            return 1;
+        }
+
+        int[] moves = new int[9];
+        int count = game.getLegalMoves(moves);
+        int games = 0;
+
+        for(int i = 0; i < count; i++){
+            Minimax.play(game, moves[i]);
+            games += checkGames(game, firstPlayer, replayed);
+            game.undo();
+        }
+
+        return games;
+    }
+
+
+    private static void assertReplayed(TicTacToe game, long record){
+        TicTacToe replayed = new TicTacToe();
+        GameRecord.replay(record, replayed);
+
+        assertArrayEquals(game.getGrid(), replayed.getGrid());
+        assertEquals(game.getCurrentPlayer(), replayed.getCurrentPlayer());
+        assertEquals(game.getState(), replayed.getState());
+        assertEquals(game.getMoveCount(), replayed.getMoveCount());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+
+// Games between RemotePlayer clients, through a GameServer on a local port
+public class GameServerTest {
+
+
+    private GameServer _server;
+    private Thread _serverThread;
+    private final ExecutorService _executor = Executors.newCachedThreadPool();
+    private final List<RemotePlayer> _players = new ArrayList<RemotePlayer>();
+
+
+    @Before
+    public void setUp() throws IOException {
+        _server = new GameServer(new InetSocketAddress("127.0.0.1", 0));
+        _serverThread = _server.start();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        for(RemotePlayer player : _players){
+            player.close();
+        }
+        _executor.shutdownNow();
+        _server.close();
+        _serverThread.join();
+    }
+
+
+    // Both clients see the same game, move after move, until its end
+    @Test
+    public void clientsPlayAWholeGame() throws Exception {
+        RemotePlayer[] players = {connect(), connect()};
+        boolean[] remoteFirst = joinTogether(players[0], players[1], 3, 3, 3);
+        assertTrue(remoteFirst[0] != remoteFirst[1]);
+
+        // Both engines start with player A, who stands for the client playing first
+        TicTacToe[] games = {new TicTacToe(), new TicTacToe()};
+        int mover = remoteFirst[0] ? 1 : 0;
+
+        // A tie: A B A / A B B / B A A
+        int[] cells = {0, 1, 2, 4, 3, 5, 7, 6, 8};
+        for(int cell : cells){
+            int waiter = 1 - mover;
+            games[mover].playCell(cell / 3, cell % 3);
+            players[mover].sendMoves(games[mover]);
+            int move = players[waiter].chooseMove(games[waiter]);
+            assertEquals(cell, move);
+            games[waiter].playCell(move / 3, move % 3);
+
+            mover = waiter;
+        }
+
+        for(TicTacToe game : games){
+            assertEquals(TicTacToe.GAME_STATE.TIE, game.getState());
+        }
+        assertEquals(games[0].encode(), games[1].encode());
+    }
+
+
+    // A grid the engine refuses, or bigger than the server hosts, is answered by an error
+    @Test
+    public void invalidGridsAreRefused() throws Exception {
+        int[][] grids = {{0, 3, 3}, {3, 3, 4}, {GameServer.MAX_GRID_SIDE + 1, 3, 3}, {255, 255, 5}};
+
+        for(int[] grid : grids){
+            RemotePlayer player = connect();
+            try{
+                player.join(grid[0], grid[1], grid[2]);
+                fail("Grid " + grid[0] + "x" + grid[1] + " was accepted");
+            }catch(IOException e){
+                // Expected
+            }
+        }
+
+        // The biggest grid is hosted
+        boolean[] remoteFirst = joinTogether(connect(), connect(), GameServer.MAX_GRID_SIDE, GameServer.MAX_GRID_SIDE, 5);
+        assertTrue(remoteFirst[0] != remoteFirst[1]);
+    }
+
+
+    // The answer to a move sent while the opponent was leaving comes after OPPONENT_LEFT: joining again skips it
+    @Test
+    public void joinSkipsFramesOfThePreviousGame() throws Exception {
+        RemotePlayer player = connect();
+        RemotePlayer opponent = connect();
+        joinTogether(player, opponent, 3, 3, 3);
+
+        opponent.close();
+        Thread.sleep(200);
+
+        TicTacToe game = new TicTacToe();
+        game.playCell(1, 1);
+        try{
+            player.sendMoves(game);
+            fail("The move was answered, while the opponent left");
+        }catch(IOException e){
+            // The opponent left: the move is refused afterwards
+        }
+
+        boolean[] remoteFirst = joinTogether(player, connect(), 3, 3, 3);
+        assertTrue(remoteFirst[0] != remoteFirst[1]);
+    }
+
+
+    private RemotePlayer connect() throws IOException {
+        RemotePlayer player = RemotePlayer.connect(new InetSocketAddress("127.0.0.1", _server.getPort()));
+        _players.add(player);
+        return player;
+    }
+
+
+    // Joins both players to the same grid, and returns whether the remote opponent plays first, for each one
+    private boolean[] joinTogether(final RemotePlayer first, final RemotePlayer second,
+                                   final int width, final int height, final int winLength) throws Exception {
+        Future<Boolean> firstJoined = _executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws IOException {
+                return first.join(width, height, winLength);
+            }
+        });
+
+        boolean secondRemoteFirst = second.join(width, height, winLength);
+        return new boolean[]{firstJoined.get(), secondRemoteFirst};
+    }
+}
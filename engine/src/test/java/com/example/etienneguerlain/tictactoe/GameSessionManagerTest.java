@@ -0,0 +1,110 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+public class GameSessionManagerTest {
+
+
+    private static final long IDLE_TIMEOUT_MILLIS = 100;
+
+
+    private final GameSessionManager _manager = new GameSessionManager(IDLE_TIMEOUT_MILLIS);
+
+
+    @After
+    public void tearDown(){
+        _manager.shutdown();
+    }
+
+
+    @Test
+    public void sessionsPlayUntilClosed(){
+        GameSession session = _manager.create(3, 3, 3);
+
+        assertSame(session, _manager.get(session.getId()));
+        assertEquals(TicTacToe.PLAY_RESULT.OK, session.playCell(1, 1));
+        assertEquals(TicTacToe.PLAYERS.B, session.getCurrentPlayer());
+
+        assertTrue(_manager.close(session.getId()));
+        assertFalse(_manager.close(session.getId()));
+        assertNull(_manager.get(session.getId()));
+
+        try{
+            session.playCell(0, 0);
+            fail("A closed session was played");
+        }catch(IllegalStateException e){
+            // Expected
+        }
+    }
+
+
+    // A session that received no request during the timeout is evicted, while a used one is kept
+    @Test
+    public void idleSessionsAreEvicted() throws InterruptedException {
+        GameSession idle = _manager.create(3, 3, 3);
+        GameSession used = _manager.create(3, 3, 3);
+
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(4 * IDLE_TIMEOUT_MILLIS);
+        while(System.nanoTime() < end){
+            used.getState();
+            Thread.sleep(IDLE_TIMEOUT_MILLIS / 10);
+        }
+
+        assertNull(_manager.get(idle.getId()));
+        assertSame(used, _manager.get(used.getId()));
+    }
+
+
+    // The evictor doesn't wait for a request to finish: the busy session is skipped, and evicted once idle
+    @Test
+    public void busySessionsAreSkipped() throws InterruptedException {
+        final GameSession session = _manager.create(3, 3, 3);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        Thread request = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                session.playCpuMove(new CpuPlayer() {
+                    @Override
+                    public int chooseMove(TicTacToe game){
+                        started.countDown();
+                        try{
+                            release.await();
+                        }catch(InterruptedException e){
+                            Thread.currentThread().interrupt();
+                        }
+                        return 4;
+                    }
+                });
+            }
+        });
+        request.start();
+
+        try{
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+            Thread.sleep(3 * IDLE_TIMEOUT_MILLIS);
+
+            long start = System.nanoTime();
+            assertEquals(0, _manager.evictIdleSessions());
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MILLIS));
+            assertSame(session, _manager.get(session.getId()));
+        }finally{
+            release.countDown();
+            request.join();
+        }
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while(_manager.get(session.getId()) != null && System.nanoTime() < end){
+            Thread.sleep(IDLE_TIMEOUT_MILLIS / 10);
+        }
+        assertNull(_manager.get(session.getId()));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+public class IterativeDeepeningCpuPlayerTest {
+
+
+    // With a budget big enough to search the whole classic game, the player never loses a position that isn't lost,
+    // and wins at once when it can. It may miss slower wins: only the cells next to marks are searched
+    @Test
+    public void neverLosesWithoutLimits(){
+        IterativeDeepeningCpuPlayer player = new IterativeDeepeningCpuPlayer(Integer.MAX_VALUE, 9, new Random(3));
+
+        for(TicTacToe.PLAYERS firstPlayer : TicTacToe.PLAYERS.values()){
+            for(TicTacToe game : Minimax.classicPositions(firstPlayer)){
+                if(game.getState() != TicTacToe.GAME_STATE.PLAYING){
+                    continue;
+                }
+
+                int move = player.chooseMove(game);
+                assertEquals(0, game.getCell(move / 3, move % 3));
+
+                if(Minimax.value(game) >= 0){
+                    assertTrue(Minimax.valueOfMove(game, move) >= 0);
+                }
+                if(winsAtOnce(game) >= 0){
+                    Minimax.play(game, move);
+                    assertTrue(game.getState() == TicTacToe.GAME_STATE.A_WON || game.getState() == TicTacToe.GAME_STATE.B_WON);
+                    game.undo();
+                }
+            }
+        }
+    }
+
+
+    // The NORMAL player misses the forks of its opponent: on the classic grid, a player starting first can force
+    // a win against it, whatever its random choices
+    @Test
+    public void normalCanBeBeaten(){
+        for(long seed = 0; seed < 10; seed++){
+            assertTrue("NORMAL player " + seed + " can't be beaten", forcesWinAgainstNormal(new TicTacToe(), seed));
+        }
+    }
+
+
+    // The NORMAL player still beats a random player most of the time, whoever starts
+    @Test
+    public void normalBeatsEasyMostOfTheTime(){
+        Random random = new Random(29);
+        CpuPlayer normal = new IterativeDeepeningCpuPlayer(CpuPlayers.NORMAL_NODE_BUDGET, CpuPlayers.NORMAL_DEPTH, random);
+        CpuPlayer easy = new RandomCpuPlayer(random);
+        int won = 0;
+        int lost = 0;
+        int games = 2000;
+
+        for(int i = 0; i < games; i++){
+            TicTacToe game = new TicTacToe();
+            TicTacToe.PLAYERS normalPlayer = (i % 2 == 0) ? TicTacToe.PLAYERS.A : TicTacToe.PLAYERS.B;
+
+            while(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                CpuPlayer player = (game.getCurrentPlayer() == normalPlayer) ? normal : easy;
+                Minimax.play(game, player.chooseMove(game));
+            }
+
+            if(game.getState() != TicTacToe.GAME_STATE.TIE){
+                if((game.getState() == TicTacToe.GAME_STATE.A_WON) == (normalPlayer == TicTacToe.PLAYERS.A)){
+                    won++;
+                }else{
+                    lost++;
+                }
+            }
+        }
+
+        assertTrue("NORMAL won " + won + " games out of " + games, won > games * 8 / 10);
+        assertTrue("NORMAL lost " + lost + " games out of " + games, lost < games / 50);
+    }
+
+
+    // The search is left after a win or a tie is found: on a big grid, the winning move is still played,
+    // and the threat of the opponent is still blocked
+    @Test
+    public void winsAndBlocksOnBigGrids(){
+        IterativeDeepeningCpuPlayer player = new IterativeDeepeningCpuPlayer(20000, 4, new Random(5));
+
+        // A on (7, 3) to (7, 6), B on (8, 3) to (8, 5) and (0, 0): A completes its line on either side
+        TicTacToe game = play(7 * 15 + 3, 8 * 15 + 3, 7 * 15 + 4, 8 * 15 + 4, 7 * 15 + 5, 8 * 15 + 5, 7 * 15 + 6, 0);
+        int move = player.chooseMove(game);
+        assertTrue(move == 7 * 15 + 2 || move == 7 * 15 + 7);
+
+        // A on (7, 3) to (7, 6) again, but B holds (7, 2): B has to take (7, 7)
+        game = play(7 * 15 + 3, 7 * 15 + 2, 7 * 15 + 4, 0, 7 * 15 + 5, 14, 7 * 15 + 6);
+        assertEquals(7 * 15 + 7, player.chooseMove(game));
+    }
+
+
+    @Test
+    public void startsInTheCenter(){
+        IterativeDeepeningCpuPlayer player = new IterativeDeepeningCpuPlayer(1000, 3, new Random(7));
+
+        assertEquals(4, player.chooseMove(new TicTacToe()));
+        assertEquals(7 * 15 + 7, player.chooseMove(new TicTacToe(15, 15, 5)));
+    }
+
+
+    // Plays the given cells on a 15x15 grid, where 5 aligned marks win
+    private static TicTacToe play(int... cells){
+        TicTacToe game = new TicTacToe(15, 15, 5);
+
+        for(int cell : cells){
+            Minimax.play(game, cell);
+        }
+
+        return game;
+    }
+
+
+    // Returns a move winning the game at once, or -1 if there is none
+    private static int winsAtOnce(TicTacToe game){
+        int[] moves = new int[game.getCellCount()];
+        int count = game.getLegalMoves(moves);
+
+        for(int i = 0; i < count; i++){
+            Minimax.play(game, moves[i]);
+            TicTacToe.GAME_STATE state = game.getState();
+            game.undo();
+
+            if(state == TicTacToe.GAME_STATE.A_WON || state == TicTacToe.GAME_STATE.B_WON){
+                return moves[i];
+            }
+        }
+
+        return -1;
+    }
+
+
+    // Tells if the player who has to play can win, whatever the NORMAL player answers. The NORMAL player is created
+    // again before each answer, so that its random choices only depend on the seed and the position
+    private static boolean forcesWinAgainstNormal(TicTacToe game, long seed){
+        int[] moves = new int[game.getCellCount()];
+        int count = game.getLegalMoves(moves);
+
+        for(int i = 0; i < count; i++){
+            Minimax.play(game, moves[i]);
+
+            boolean won;
+            if(game.getState() != TicTacToe.GAME_STATE.PLAYING){
+                won = (game.getState() != TicTacToe.GAME_STATE.TIE);
+            }else{
+                CpuPlayer normal = new IterativeDeepeningCpuPlayer(CpuPlayers.NORMAL_NODE_BUDGET,
+                        CpuPlayers.NORMAL_DEPTH, new Random(seed));
+                Minimax.play(game, normal.chooseMove(game));
+                won = (game.getState() == TicTacToe.GAME_STATE.PLAYING) && forcesWinAgainstNormal(game, seed);
+                game.undo();
+            }
+
+            game.undo();
+            if(won){
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
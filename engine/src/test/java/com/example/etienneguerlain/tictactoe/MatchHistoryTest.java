@@ -0,0 +1,167 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+
+public class MatchHistoryTest {
+
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    // Games appended are written, and found again once the history is reopened
+    @Test
+    public void gamesAreKeptWhenReopened() throws IOException {
+        File directory = folder.newFolder();
+        long[] records = {record(0, 3, 1, 4, 2), record(0, 1, 2, 4, 3, 5, 7, 6, 8), record(4)};
+
+        MatchHistory history = MatchHistory.open(directory);
+        for(long record : records){
+            history.append(record);
+        }
+        history.close();
+
+        history = MatchHistory.open(directory);
+        try{
+            assertEquals(3, history.getGameCount());
+            assertEquals(1, history.getCount(TicTacToe.GAME_STATE.A_WON));
+            assertEquals(0, history.getCount(TicTacToe.GAME_STATE.B_WON));
+            assertEquals(1, history.getCount(TicTacToe.GAME_STATE.TIE));
+
+            long[] recent = new long[5];
+            assertEquals(3, history.readRecentGames(recent));
+            for(int i = 0; i < records.length; i++){
+                assertEquals(records[i], recent[i]);
+            }
+        }finally{
+            history.close();
+        }
+    }
+
+
+    // The totals are rebuilt from the log when the index is lost
+    @Test
+    public void indexIsRebuiltFromLog() throws IOException {
+        File directory = folder.newFolder();
+
+        MatchHistory history = MatchHistory.open(directory);
+        history.append(record(0, 3, 1, 4, 2));
+        history.append(record(3, 0, 4, 1, 8, 2));
+        history.close();
+
+        assertTrue(new File(directory, MatchHistory.INDEX_FILE_NAME).delete());
+
+        history = MatchHistory.open(directory);
+        try{
+            assertEquals(2, history.getGameCount());
+            assertEquals(1, history.getCount(TicTacToe.GAME_STATE.A_WON));
+            assertEquals(1, history.getCount(TicTacToe.GAME_STATE.B_WON));
+        }finally{
+            history.close();
+        }
+    }
+
+
+    // A flush writes the pending games at once, without waiting for the batch delay
+    @Test
+    public void flushDoesNotWaitForBatchDelay() throws IOException {
+        File directory = folder.newFolder();
+        MatchHistory history = MatchHistory.open(directory);
+
+        try{
+            history.append(record(0, 3, 1, 4, 2));
+
+            long start = System.nanoTime();
+            history.flush();
+            assertTrue((System.nanoTime() - start) / 1000000 < 250);
+
+            assertEquals(16, new File(directory, MatchHistory.LOG_FILE_NAME).length());
+        }finally{
+            history.close();
+        }
+    }
+
+
+    // startFlush returns at once, and the games are written without waiting for the batch delay
+    @Test
+    public void startFlushWritesInTheBackground() throws Exception {
+        File directory = folder.newFolder();
+        File log = new File(directory, MatchHistory.LOG_FILE_NAME);
+        MatchHistory history = MatchHistory.open(directory);
+
+        try{
+            history.append(record(0, 3, 1, 4, 2));
+            history.startFlush();
+
+            long start = System.nanoTime();
+            while(log.length() < 16 && (System.nanoTime() - start) / 1000000 < 250){
+                Thread.sleep(5);
+            }
+            assertEquals(16, log.length());
+        }finally{
+            history.close();
+        }
+    }
+
+
+    // Holders of the same directory share the history, which stays open until the last one closes it
+    @Test
+    public void historyIsSharedByHolders() throws IOException {
+        File directory = folder.newFolder();
+
+        MatchHistory first = MatchHistory.open(directory);
+        MatchHistory second = MatchHistory.open(new File(directory, "."));
+        assertSame(first, second);
+
+        first.close();
+        second.append(record(4));
+        second.flush();
+        assertEquals(1, second.getGameCount());
+        second.close();
+
+        MatchHistory third = MatchHistory.open(directory);
+        assertNotSame(first, third);
+        assertEquals(1, third.getGameCount());
+        third.close();
+    }
+
+
+    // Opening the history of another directory doesn't close the first one
+    @Test
+    public void directoriesAreIndependent() throws IOException {
+        MatchHistory first = MatchHistory.open(folder.newFolder());
+        MatchHistory second = MatchHistory.open(folder.newFolder());
+
+        try{
+            assertNotSame(first, second);
+
+            first.append(record(0, 3, 1, 4, 2));
+            first.flush();
+            assertEquals(1, first.getGameCount());
+            assertEquals(0, second.getGameCount());
+        }finally{
+            first.close();
+            second.close();
+        }
+    }
+
+
+    // Record of the classic game where A plays first the given cells alternately with B
+    private static long record(int... cells){
+        TicTacToe game = new TicTacToe();
+
+        for(int cell : cells){
+            Minimax.play(game, cell);
+        }
+
+        return GameRecord.of(game);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+
+public class MctsCpuPlayerTest {
+
+
+    // A . A / B B . / . . . with A to play: completing the first line wins at once, and is the only move not to lose
+    @Test
+    public void takesTheWinningMove(){
+        MctsCpuPlayer player = MctsCpuPlayer.withPlayoutBudget(20000, 2);
+
+        try{
+            TicTacToe game = new TicTacToe();
+            for(int cell : new int[]{0, 3, 2, 4}){
+                Minimax.play(game, cell);
+            }
+            assertEquals(1, player.chooseMove(game));
+        }finally{
+            player.shutdown();
+        }
+    }
+
+
+    // On a big grid, many threads share the trees' memory budget, and still find a move
+    @Test
+    public void searchesBigGridsWithManyThreads(){
+        MctsCpuPlayer player = MctsCpuPlayer.withPlayoutBudget(4000, 16);
+
+        try{
+            TicTacToe game = new TicTacToe(15, 15, 5);
+            Minimax.play(game, 7 * 15 + 7);
+
+            int move = player.chooseMove(game);
+            assertEquals(0, game.getCell(move / 15, move % 15));
+        }finally{
+            player.shutdown();
+        }
+    }
+
+
+    // Interrupting the calling thread stops every worker: the move is returned at once, and the interrupt is kept
+    @Test
+    public void interruptStopsTheSearch() throws InterruptedException {
+        final MctsCpuPlayer player = MctsCpuPlayer.withTimeBudget(60000, 4);
+        final AtomicLong elapsed = new AtomicLong();
+        final AtomicInteger interrupted = new AtomicInteger();
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                player.chooseMove(new TicTacToe(15, 15, 5));
+                elapsed.set(System.nanoTime() - start);
+                interrupted.set(Thread.currentThread().isInterrupted() ? 1 : 0);
+            }
+        });
+
+        try{
+            thread.start();
+            Thread.sleep(200);
+            thread.interrupt();
+            thread.join(5000);
+
+            assertFalse(thread.isAlive());
+            assertTrue(elapsed.get() < TimeUnit.SECONDS.toNanos(5));
+            assertEquals(1, interrupted.get());
+        }finally{
+            player.shutdown();
+        }
+    }
+}
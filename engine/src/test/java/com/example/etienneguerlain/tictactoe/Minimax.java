@@ -0,0 +1,88 @@
+package com.example.etienneguerlain.tictactoe;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+// Brute force minimax, with neither pruning nor transposition table: it is too slow to be used by the application,
+// but simple enough to serve as a reference for the solvers
+final class Minimax {
+
+
+    private Minimax(){
+    }
+
+
+    // Returns the value of the position for the player who has to play: 1 for a win, 0 for a tie and -1 for a loss
+    static int value(TicTacToe game){
+
+        switch (game.getState()){
+            case TIE:
+                return 0;
+            case A_WON:
+            case B_WON:
+                // Only the player who just played can have won
+                return -1;
+        }
+
+        int[] moves = new int[game.getCellCount()];
+        int count = game.getLegalMoves(moves);
+        int best = -1;
+
+        for(int i = 0; i < count && best < 1; i++){
+            play(game, moves[i]);
+            best = Math.max(best, -value(game));
+            game.undo();
+        }
+
+        return best;
+    }
+
+
+    // Returns the value of the given move for the player who has to play
+    static int valueOfMove(TicTacToe game, int move){
+        play(game, move);
+        int value = -value(game);
+        game.undo();
+
+        return value;
+    }
+
+
+    // Returns a copy of every position of the classic 3x3 game that can be reached when the given player plays
+    // first, finished ones included
+    static List<TicTacToe> classicPositions(TicTacToe.PLAYERS firstPlayer){
+        TicTacToe game = new TicTacToe();
+        game.setCurrentPlayer(firstPlayer);
+
+        List<TicTacToe> positions = new ArrayList<TicTacToe>();
+        addPositions(game, new HashSet<Long>(), positions);
+
+        return positions;
+    }
+
+    private static void addPositions(TicTacToe game, Set<Long> seen, List<TicTacToe> positions){
+        if(!seen.add(game.getHash())){
+            return;
+        }
+
+        TicTacToe copy = new TicTacToe();
+        copy.copyFrom(game);
+        positions.add(copy);
+
+        int[] moves = new int[9];
+        int count = game.getLegalMoves(moves);
+        for(int i = 0; i < count; i++){
+            play(game, moves[i]);
+            addPositions(game, seen, positions);
+            game.undo();
+        }
+    }
+
+
+    static void play(TicTacToe game, int cell){
+        game.playCell(cell / game.getWidth(), cell % game.getWidth());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+public class NegamaxSolverTest {
+
+
+    // The solver finds the value of every position of the classic game, and a move that keeps it
+    @Test
+    public void solvesEveryClassicPosition(){
+        NegamaxSolver solver = new NegamaxSolver(3, 3, 3);
+        int solved = 0;
+
+        for(TicTacToe game : Minimax.classicPositions(TicTacToe.PLAYERS.A)){
+            if(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                assertSolved(solver, game);
+                solved++;
+            }
+        }
+
+        // 5478 positions, of which 958 are finished
+        assertEquals(4520, solved);
+    }
+
+
+    // On bigger grids, random positions with few empty cells left are compared with the brute force search
+    @Test
+    public void solvesPositionsOfBiggerGrids(){
+        int[][] grids = {{4, 3, 3}, {4, 4, 3}, {4, 4, 4}, {5, 2, 2}};
+        Random random = new Random(6);
+
+        for(int[] grid : grids){
+            NegamaxSolver solver = new NegamaxSolver(grid[0], grid[1], grid[2]);
+            TicTacToe game = new TicTacToe(grid[0], grid[1], grid[2]);
+            int[] moves = new int[game.getCellCount()];
+
+            for(int n = 0; n < 30; n++){
+                game.reset();
+
+                while(game.getMoveCount() < game.getCellCount() - 9 + (n % 3)){
+                    int count = game.getLegalMoves(moves);
+                    Minimax.play(game, moves[random.nextInt(count)]);
+
+                    if(game.getState() != TicTacToe.GAME_STATE.PLAYING){
+                        game.undo();
+                    }
+                }
+
+                assertTrue(solver.handles(game));
+                assertSolved(solver, game);
+            }
+        }
+    }
+
+
+    @Test
+    public void handlesItsGridOnly(){
+        NegamaxSolver solver = new NegamaxSolver(4, 4, 3);
+
+        assertTrue(solver.handles(new TicTacToe(4, 4, 3)));
+        assertFalse(solver.handles(new TicTacToe(4, 4, 4)));
+        assertFalse(solver.handles(new TicTacToe()));
+    }
+
+
+    private static void assertSolved(NegamaxSolver solver, TicTacToe game){
+        int result = solver.solve(game);
+        int value = Minimax.value(game);
+
+        assertEquals(value, Integer.signum(NegamaxSolver.getScore(result)));
+        assertEquals(0, game.getCell(NegamaxSolver.getMove(result) / game.getWidth(), NegamaxSolver.getMove(result) % game.getWidth()));
+        assertEquals(value, Minimax.valueOfMove(game, NegamaxSolver.getMove(result)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+
+public class PerfectPlayTableTest {
+
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    // The table gives the value of every position of the classic game, whoever plays first, and a move that keeps it
+    @Test
+    public void agreesWithBruteForce(){
+        PerfectPlayTable table = PerfectPlayTableGenerator.generate();
+
+        for(TicTacToe.PLAYERS firstPlayer : TicTacToe.PLAYERS.values()){
+            for(TicTacToe game : Minimax.classicPositions(firstPlayer)){
+                assertPerfect(table, game);
+            }
+        }
+    }
+
+
+    // The table written by the generator is read back as it was computed
+    @Test
+    public void readsGeneratedFile() throws IOException {
+        File file = new File(folder.getRoot(), PerfectPlayTable.ASSET_NAME);
+        PerfectPlayTableGenerator.main(new String[]{file.getPath()});
+
+        PerfectPlayTable table;
+        InputStream input = new FileInputStream(file);
+        try{
+            table = PerfectPlayTable.read(input);
+        }finally{
+            input.close();
+        }
+
+        PerfectPlayTable generated = PerfectPlayTableGenerator.generate();
+        for(TicTacToe game : Minimax.classicPositions(TicTacToe.PLAYERS.B)){
+            assertEquals(generated.getMove(game), table.getMove(game));
+            assertEquals(generated.getValue(game), table.getValue(game));
+        }
+    }
+
+
+    @Test(expected = IOException.class)
+    public void rejectsAnotherFile() throws IOException {
+        PerfectPlayTable.read(new ByteArrayInputStream(new byte[PerfectPlayTable.SIZE + 8]));
+    }
+
+
+    @Test
+    public void ignoresOtherGrids(){
+        PerfectPlayTable table = PerfectPlayTableGenerator.generate();
+        TicTacToe game = new TicTacToe(4, 4, 3);
+
+        assertFalse(PerfectPlayTable.isClassicGame(game));
+        assertEquals(-1, table.getMove(game));
+        assertEquals(0, table.getValue(game));
+    }
+
+
+    private static void assertPerfect(PerfectPlayTable table, TicTacToe game){
+
+        if(game.getState() != TicTacToe.GAME_STATE.PLAYING){
+            assertEquals(-1, table.getMove(game));
+            assertEquals(0, table.getValue(game));
+            return;
+        }
+
+        int value = Minimax.value(game);
+        int expected = (value > 0) ? PerfectPlayTable.WIN : (value < 0) ? PerfectPlayTable.LOSS : PerfectPlayTable.TIE;
+        int move = table.getMove(game);
+
+        assertEquals(expected, table.getValue(game));
+        assertEquals(0, game.getCell(move / 3, move % 3));
+        assertEquals(value, Minimax.valueOfMove(game, move));
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+
+public class TablebaseTest {
+
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ForkJoinPool _pool = new ForkJoinPool(2);
+
+
+    @After
+    public void tearDown(){
+        _pool.shutdown();
+    }
+
+
+    // Every position of the classic game has the value found by brute force, and its distance is the length of the
+    // game when both players follow the tablebase
+    @Test
+    public void agreesWithBruteForceOnClassicGame() throws IOException {
+        Tablebase tablebase = generate(3, 3, 3);
+
+        for(TicTacToe.PLAYERS firstPlayer : TicTacToe.PLAYERS.values()){
+            for(TicTacToe game : Minimax.classicPositions(firstPlayer)){
+                assertEquals(expectedValue(Minimax.value(game)), tablebase.getValue(game));
+                assertPlaysItsDistance(tablebase, game);
+            }
+        }
+    }
+
+
+    // A won position is won as fast as possible: no faster win can be forced
+    @Test
+    public void winsAsFastAsPossible() throws IOException {
+        Tablebase tablebase = generate(3, 3, 3);
+
+        for(TicTacToe game : Minimax.classicPositions(TicTacToe.PLAYERS.A)){
+            if(game.getState() != TicTacToe.GAME_STATE.PLAYING || tablebase.getValue(game) != PerfectPlayTable.WIN){
+                continue;
+            }
+
+            int distance = tablebase.getDistance(game);
+            assertTrue(forcesWin(game, distance));
+            assertFalse(forcesWin(game, distance - 2));
+        }
+    }
+
+
+    // On other grids, positions reached by random moves have the value found by brute force
+    @Test
+    public void agreesWithBruteForceOnOtherGrids() throws IOException {
+        int[][] grids = {{4, 3, 3}, {3, 4, 3}, {2, 2, 2}, {4, 3, 4}};
+        Random random = new Random(23);
+
+        for(int[] grid : grids){
+            Tablebase tablebase = generate(grid[0], grid[1], grid[2]);
+            TicTacToe game = new TicTacToe(grid[0], grid[1], grid[2]);
+            int[] moves = new int[game.getCellCount()];
+
+            for(int i = 0; i < 200; i++){
+                game.reset();
+                if(random.nextBoolean()){
+                    game.setCurrentPlayer(TicTacToe.PLAYERS.B);
+                }
+
+                // The brute force is too slow with more than 8 empty cells
+                int marks = Math.max(0, game.getCellCount() - 8) + random.nextInt(3);
+                while(game.getMoveCount() < marks && game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                    Minimax.play(game, moves[random.nextInt(game.getLegalMoves(moves))]);
+                }
+
+                assertEquals(expectedValue(Minimax.value(game)), tablebase.getValue(game));
+                assertPlaysItsDistance(tablebase, game);
+            }
+        }
+    }
+
+
+    @Test
+    public void handlesItsGridOnly() throws IOException {
+        Tablebase tablebase = generate(4, 3, 3);
+
+        assertTrue(tablebase.handles(new TicTacToe(4, 3, 3)));
+        assertFalse(tablebase.handles(new TicTacToe(3, 4, 3)));
+        assertFalse(tablebase.handles(new TicTacToe(4, 3, 2)));
+
+        try{
+            tablebase.getValue(new TicTacToe());
+            fail("A position of another grid was read");
+        }catch(IllegalArgumentException e){
+            // Expected
+        }
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void generatorRejectsBigGrids(){
+        new TablebaseGenerator(5, 4, 4);
+    }
+
+
+    @Test(expected = IOException.class)
+    public void rejectsAnotherFile() throws IOException {
+        File file = folder.newFile();
+        OutputStream output = new FileOutputStream(file);
+        try{
+            output.write(new byte[Tablebase.HEADER_SIZE + 19683]);
+        }finally{
+            output.close();
+        }
+
+        Tablebase.open(file);
+    }
+
+
+    private Tablebase generate(int width, int height, int winLength) throws IOException {
+        File file = new File(folder.getRoot(), width + "x" + height + "x" + winLength + ".bin");
+        new TablebaseGenerator(width, height, winLength).generate(file, _pool);
+
+        return Tablebase.open(file);
+    }
+
+
+    private static int expectedValue(int minimaxValue){
+        switch (minimaxValue){
+            case 1:
+                return PerfectPlayTable.WIN;
+            case 0:
+                return PerfectPlayTable.TIE;
+            default:
+                return PerfectPlayTable.LOSS;
+        }
+    }
+
+
+    // Both players follow the tablebase: each move keeps the value of the position, and the game ends after
+    // the given number of moves, as predicted
+    private static void assertPlaysItsDistance(Tablebase tablebase, TicTacToe position){
+        TicTacToe game = new TicTacToe(position.getWidth(), position.getHeight(), position.getWinLength());
+        game.copyFrom(position);
+
+        TicTacToe.PLAYERS player = game.getCurrentPlayer();
+        int value = tablebase.getValue(game);
+        int distance = tablebase.getDistance(game);
+
+        for(int i = 0; i < distance; i++){
+            assertEquals(TicTacToe.GAME_STATE.PLAYING, game.getState());
+            Minimax.play(game, tablebase.getMove(game));
+        }
+        assertEquals(-1, tablebase.getMove(game));
+
+        TicTacToe.GAME_STATE state = game.getState();
+        if(value == PerfectPlayTable.TIE){
+            assertEquals(TicTacToe.GAME_STATE.TIE, state);
+        }else{
+            boolean aWon = (state == TicTacToe.GAME_STATE.A_WON);
+            assertTrue(aWon || state == TicTacToe.GAME_STATE.B_WON);
+            assertEquals(value == PerfectPlayTable.WIN, aWon == (player == TicTacToe.PLAYERS.A));
+        }
+    }
+
+
+    // Tells if the player who has to play can win within the given number of moves (both players' moves),
+    // whatever the opponent plays
+    private static boolean forcesWin(TicTacToe game, int moves){
+
+        if(moves <= 0){
+            return false;
+        }
+
+        int[] cells = new int[game.getCellCount()];
+        int count = game.getLegalMoves(cells);
+
+        for(int i = 0; i < count; i++){
+            Minimax.play(game, cells[i]);
+            boolean won = (game.getState() != TicTacToe.GAME_STATE.PLAYING && game.getState() != TicTacToe.GAME_STATE.TIE)
+                    || (game.getState() == TicTacToe.GAME_STATE.PLAYING && allRepliesLose(game, moves - 2));
+            game.undo();
+
+            if(won){
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean allRepliesLose(TicTacToe game, int moves){
+        int[] cells = new int[game.getCellCount()];
+        int count = game.getLegalMoves(cells);
+
+        for(int i = 0; i < count; i++){
+            Minimax.play(game, cells[i]);
+            boolean lost = (game.getState() == TicTacToe.GAME_STATE.PLAYING) && forcesWin(game, moves);
+            game.undo();
+
+            if(!lost){
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
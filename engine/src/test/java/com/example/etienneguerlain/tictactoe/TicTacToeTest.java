@@ -0,0 +1,480 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+
+public class TicTacToeTest {
+
+
+    // Grids checked, as {width, height, win length}
+    private static final int[][] GRIDS = {
+            {3, 3, 3},
+            {4, 4, 3},
+            {4, 3, 3},
+            {7, 6, 4},
+            {5, 1, 3},
+            {1, 5, 5},
+            {15, 15, 5},
+            {9, 8, 1}
+    };
+
+
+    // Every alignment of every grid wins, whatever the order its cells are played in
+    @Test
+    public void alignmentsWinInAnyOrder(){
+        int[] directions = {0, 1, 1, 0, 1, 1, 1, -1};
+        Random random = new Random(1);
+
+        for(int[] grid : GRIDS){
+            int width = grid[0];
+            int height = grid[1];
+            int winLength = grid[2];
+
+            for(int d = 0; d < directions.length; d += 2){
+                for(int line = 0; line < height; line++){
+                    for(int column = 0; column < width; column++){
+                        int lastLine = line + directions[d] * (winLength - 1);
+                        int lastColumn = column + directions[d + 1] * (winLength - 1);
+                        if(lastLine >= height || lastColumn < 0 || lastColumn >= width){
+                            continue;
+                        }
+
+                        // Only player A plays, so that the alignment is its only marks
+                        int[] steps = shuffledSteps(winLength, random);
+                        TicTacToe game = new TicTacToe(width, height, winLength);
+
+                        for(int i = 0; i < winLength; i++){
+                            assertEquals(TicTacToe.GAME_STATE.PLAYING, game.getState());
+                            game.setCurrentPlayer(TicTacToe.PLAYERS.A);
+                            game.playCell(line + steps[i] * directions[d], column + steps[i] * directions[d + 1]);
+                        }
+
+                        assertEquals("Alignment from (" + line + ", " + column + ") on " + width + "x" + height + "x" + winLength,
+                                TicTacToe.GAME_STATE.A_WON, game.getState());
+                    }
+                }
+            }
+        }
+    }
+
+
+    // During random games, the state found around the last move is the one a scan of the whole grid finds
+    @Test
+    public void winDetectionMatchesFullScan(){
+        Random random = new Random(2);
+
+        for(int[] grid : GRIDS){
+            TicTacToe game = new TicTacToe(grid[0], grid[1], grid[2]);
+            int[] moves = new int[game.getCellCount()];
+
+            for(int n = 0; n < 200; n++){
+                game.reset();
+
+                while(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                    int count = game.getLegalMoves(moves);
+                    Minimax.play(game, moves[random.nextInt(count)]);
+
+                    assertEquals(scanState(game), game.getState());
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void fullGridWithoutAlignmentIsATie(){
+        TicTacToe game = new TicTacToe();
+
+        // A B A / A B B / B A A
+        int[] cells = {0, 1, 2, 4, 3, 5, 7, 6, 8};
+        for(int cell : cells){
+            assertEquals(TicTacToe.GAME_STATE.PLAYING, game.getState());
+            Minimax.play(game, cell);
+        }
+
+        assertEquals(TicTacToe.GAME_STATE.TIE, game.getState());
+    }
+
+
+    @Test
+    public void winOnLastCellIsNotATie(){
+        TicTacToe game = new TicTacToe();
+
+        // A B A / B B . / B A A, then A completes the last column
+        int[] cells = {0, 1, 2, 3, 7, 4, 8, 6, 5};
+        for(int cell : cells){
+            Minimax.play(game, cell);
+        }
+
+        assertEquals(TicTacToe.GAME_STATE.A_WON, game.getState());
+    }
+
+
+    @Test
+    public void playCellRejectsTakenAndOutOfBoundsCells(){
+        TicTacToe game = new TicTacToe(4, 3, 3);
+
+        assertEquals(TicTacToe.PLAY_RESULT.OK, game.playCell(2, 3));
+        assertEquals(TicTacToe.PLAY_RESULT.TAKEN_CELL, game.playCell(2, 3));
+        assertEquals(TicTacToe.PLAY_RESULT.OUT_OF_BOUNDS, game.playCell(3, 0));
+        assertEquals(TicTacToe.PLAY_RESULT.OUT_OF_BOUNDS, game.playCell(0, 4));
+        assertEquals(TicTacToe.PLAY_RESULT.OUT_OF_BOUNDS, game.playCell(-1, 0));
+
+        // Rejected moves don't change the player who has to play
+        assertEquals(TicTacToe.PLAYERS.B, game.getCurrentPlayer());
+        assertEquals(1, game.getMoveCount());
+    }
+
+
+    // Playing a move then taking it back gives the same position, grid, hashes and state
+    @Test
+    public void undoRestoresThePosition(){
+        Random random = new Random(3);
+
+        for(int[] grid : GRIDS){
+            TicTacToe game = new TicTacToe(grid[0], grid[1], grid[2]);
+            int[] moves = new int[game.getCellCount()];
+
+            for(int n = 0; n < 20; n++){
+                game.reset();
+
+                while(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                    int count = game.getLegalMoves(moves);
+                    int[][] cells = game.getGrid();
+                    long hash = game.getHash();
+                    long canonicalHash = game.getCanonicalHash();
+                    TicTacToe.PLAYERS player = game.getCurrentPlayer();
+                    int moveCount = game.getMoveCount();
+
+                    for(int i = 0; i < count; i++){
+                        Minimax.play(game, moves[i]);
+                        assertTrue(game.undo());
+
+                        assertArrayEquals(cells, game.getGrid());
+                        assertEquals(hash, game.getHash());
+                        assertEquals(canonicalHash, game.getCanonicalHash());
+                        assertEquals(player, game.getCurrentPlayer());
+                        assertEquals(moveCount, game.getMoveCount());
+                        assertEquals(TicTacToe.GAME_STATE.PLAYING, game.getState());
+                    }
+
+                    Minimax.play(game, moves[random.nextInt(count)]);
+                }
+
+                // Taking back a winning move sets the game back to PLAYING
+                assertTrue(game.undo());
+                assertEquals(TicTacToe.GAME_STATE.PLAYING, game.getState());
+            }
+        }
+
+        assertFalse(new TicTacToe().undo());
+    }
+
+
+    // A copy has the same position and history, and goes on independently of the original
+    @Test
+    public void copyFromCopiesPositionAndHistory(){
+        Random random = new Random(4);
+
+        for(int[] grid : GRIDS){
+            TicTacToe game = new TicTacToe(grid[0], grid[1], grid[2]);
+            TicTacToe copy = new TicTacToe(grid[0], grid[1], grid[2]);
+            int[] moves = new int[game.getCellCount()];
+
+            for(int n = 0; n < 50; n++){
+                game.reset();
+                int copyAt = random.nextInt(game.getCellCount());
+
+                while(game.getState() == TicTacToe.GAME_STATE.PLAYING && game.getMoveCount() < copyAt){
+                    int count = game.getLegalMoves(moves);
+                    Minimax.play(game, moves[random.nextInt(count)]);
+                }
+
+                // The copy first plays a few moves of its own, that must be dropped
+                copy.reset();
+                copy.playCell(0, 0);
+                copy.copyFrom(game);
+                assertSamePosition(game, copy);
+
+                // Both go on with the same moves, then the copy takes everything back
+                while(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                    int count = game.getLegalMoves(moves);
+                    int move = moves[random.nextInt(count)];
+                    Minimax.play(game, move);
+                    Minimax.play(copy, move);
+                    assertSamePosition(game, copy);
+                }
+
+                while(copy.undo()){
+                }
+                assertEquals(0, copy.getMoveCount());
+                assertEquals(new TicTacToe(grid[0], grid[1], grid[2]).getHash(), copy.getHash());
+            }
+        }
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void copyFromRejectsAnotherGrid(){
+        new TicTacToe(4, 4, 3).copyFrom(new TicTacToe());
+    }
+
+
+    // The hash only depends on the position, not on the order of the moves
+    @Test
+    public void hashDependsOnPositionOnly(){
+        TicTacToe first = new TicTacToe(7, 6, 4);
+        TicTacToe second = new TicTacToe(7, 6, 4);
+
+        // A on 0, 10, 20; B on 5, 15: played in two orders
+        int[] firstOrder = {0, 5, 10, 15, 20};
+        int[] secondOrder = {20, 15, 0, 5, 10};
+        for(int i = 0; i < firstOrder.length; i++){
+            Minimax.play(first, firstOrder[i]);
+            Minimax.play(second, secondOrder[i]);
+        }
+
+        assertEquals(first.getHash(), second.getHash());
+
+        // The player who has to play is part of the hash
+        long hash = first.getHash();
+        first.setCurrentPlayer(TicTacToe.PLAYERS.A);
+        assertNotEquals(hash, first.getHash());
+    }
+
+
+    // Positions that are rotations or reflections of each other have the same canonical hash and bitboards
+    @Test
+    public void symmetricPositionsHaveTheSameCanonicalForm(){
+        Random random = new Random(5);
+        int[][] grids = {{3, 3, 3}, {4, 4, 3}, {5, 3, 3}};
+
+        for(int[] grid : grids){
+            TicTacToe game = new TicTacToe(grid[0], grid[1], grid[2]);
+            int[] moves = new int[game.getCellCount()];
+
+            for(int n = 0; n < 50; n++){
+                game.reset();
+                while(game.getState() == TicTacToe.GAME_STATE.PLAYING && game.getMoveCount() < game.getCellCount() / 2){
+                    int count = game.getLegalMoves(moves);
+                    Minimax.play(game, moves[random.nextInt(count)]);
+                }
+
+                for(int s = 0; s < game.getSymmetryCount(); s++){
+                    TicTacToe transformed = new TicTacToe(grid[0], grid[1], grid[2]);
+                    for(int i = 0; i < game.getMoveCount(); i++){
+                        Minimax.play(transformed, game.transformCell(s, game.getMove(i)));
+                    }
+
+                    assertEquals(game.getCanonicalHash(), transformed.getCanonicalHash());
+                    assertEquals(game.getCanonicalMarks(TicTacToe.PLAYERS.A), transformed.getCanonicalMarks(TicTacToe.PLAYERS.A));
+                    assertEquals(game.getCanonicalMarks(TicTacToe.PLAYERS.B), transformed.getCanonicalMarks(TicTacToe.PLAYERS.B));
+                }
+            }
+        }
+    }
+
+
+    // Every position of the classic game (5478 of them, whoever plays first) is decoded as it was encoded
+    @Test
+    public void encodingRoundTrips(){
+        assertEquals(5478, checkEncoding(new TicTacToe(), TicTacToe.PLAYERS.A, new HashSet<Integer>()));
+        assertEquals(5478, checkEncoding(new TicTacToe(), TicTacToe.PLAYERS.B, new HashSet<Integer>()));
+    }
+
+
+    // A decoded position has no move to take back, and moves played from it are taken back to it
+    @Test
+    public void decodedPositionStartsWithoutHistory(){
+        TicTacToe game = new TicTacToe();
+        int[] cells = {4, 0, 8, 2};
+        for(int cell : cells){
+            Minimax.play(game, cell);
+        }
+
+        TicTacToe decoded = new TicTacToe(game.encode());
+        assertEquals(0, decoded.getMoveCount());
+        assertEquals(4, decoded.getMarkCount());
+        assertFalse(decoded.undo());
+
+        // A plays elsewhere, and B completes the first line
+        Minimax.play(decoded, 6);
+        Minimax.play(decoded, 1);
+        assertEquals(TicTacToe.GAME_STATE.B_WON, decoded.getState());
+
+        assertTrue(decoded.undo());
+        assertTrue(decoded.undo());
+        assertFalse(decoded.undo());
+        assertEquals(TicTacToe.GAME_STATE.PLAYING, decoded.getState());
+        assertEquals(game.encode(), decoded.encode());
+        assertEquals(game.getHash(), decoded.getHash());
+    }
+
+
+    // A full grid decoded from a position ends in a tie when its last cell is played
+    @Test
+    public void decodedPositionDetectsFullGrid(){
+        TicTacToe game = new TicTacToe();
+
+        // Same game as fullGridWithoutAlignmentIsATie, but the last cell
+        int[] cells = {0, 1, 2, 4, 3, 5, 7, 6};
+        for(int cell : cells){
+            Minimax.play(game, cell);
+        }
+
+        TicTacToe decoded = new TicTacToe(game.encode());
+        Minimax.play(decoded, 8);
+        assertEquals(TicTacToe.GAME_STATE.TIE, decoded.getState());
+    }
+
+
+    // Encodings whose state doesn't match the grid, or that can't be reached, are rejected
+    @Test
+    public void decodingRejectsInconsistentPositions(){
+        TicTacToe game = new TicTacToe();
+        int[] cells = {0, 3, 1, 4, 2};
+        for(int cell : cells){
+            Minimax.play(game, cell);
+        }
+        int won = game.encode();
+
+        int stateShift = 19;
+        int stateMask = 3 << stateShift;
+        int playerBit = 1 << 18;
+
+        // The grid holds A's alignment, but the encoded state says otherwise
+        assertRejected((won & ~stateMask) | (TicTacToe.GAME_STATE.PLAYING.ordinal() << stateShift));
+        assertRejected((won & ~stateMask) | (TicTacToe.GAME_STATE.B_WON.ordinal() << stateShift));
+
+        // A won, but is the player who has to play
+        assertRejected(won & ~playerBit);
+
+        // An empty grid said to be won
+        assertRejected(TicTacToe.GAME_STATE.A_WON.ordinal() << stateShift);
+
+        // Both players have an alignment
+        assertRejected(0x007 | (0x038 << 9) | (TicTacToe.GAME_STATE.A_WON.ordinal() << stateShift));
+
+        // A cell owned by both players
+        assertRejected(0x001 | (0x001 << 9) | playerBit);
+    }
+
+
+    private static void assertRejected(int encoding){
+        try{
+            new TicTacToe(encoding);
+            fail("Encoding " + Integer.toHexString(encoding) + " should be rejected");
+        }catch(IllegalArgumentException e){
+            // Expected
+        }
+    }
+
+
+    // Checks the encoding of the position of the game and of all the positions that can follow it, and returns
+    // how many different positions were checked
+    private static int checkEncoding(TicTacToe game, TicTacToe.PLAYERS firstPlayer, Set<Integer> seen){
+        if(game.getMoveCount() == 0){
+            game.setCurrentPlayer(firstPlayer);
+        }
+
+        int encoding = game.encode();
+        if(!seen.add(encoding)){
+            return 0;
+        }
+
+        TicTacToe decoded = new TicTacToe(encoding);
+        assertArrayEquals(game.getGrid(), decoded.getGrid());
+        assertEquals(game.getCurrentPlayer(), decoded.getCurrentPlayer());
+        assertEquals(game.getState(), decoded.getState());
+        assertEquals(game.getHash(), decoded.getHash());
+        assertEquals(game.getCanonicalHash(), decoded.getCanonicalHash());
+        assertEquals(game.getMoveCount(), decoded.getMarkCount());
+        assertEquals(encoding, decoded.encode());
+
+        assertEquals(game.getCurrentPlayer(), TicTacToe.decodeCurrentPlayer(encoding));
+        assertEquals(game.getState(), TicTacToe.decodeState(encoding));
+        for(int cell = 0; cell < 9; cell++){
+            assertEquals(game.getCell(cell / 3, cell % 3), TicTacToe.decodeCell(encoding, cell / 3, cell % 3));
+        }
+
+        int count = 1;
+        if(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+            int[] moves = new int[9];
+            int moveCount = game.getLegalMoves(moves);
+
+            for(int i = 0; i < moveCount; i++){
+                Minimax.play(game, moves[i]);
+                count += checkEncoding(game, firstPlayer, seen);
+                game.undo();
+            }
+        }
+
+        return count;
+    }
+
+
+    private static void assertSamePosition(TicTacToe expected, TicTacToe actual){
+        assertArrayEquals(expected.getGrid(), actual.getGrid());
+        assertEquals(expected.getState(), actual.getState());
+        assertEquals(expected.getCurrentPlayer(), actual.getCurrentPlayer());
+        assertEquals(expected.getHash(), actual.getHash());
+        assertEquals(expected.getCanonicalHash(), actual.getCanonicalHash());
+        assertEquals(expected.getMoveCount(), actual.getMoveCount());
+
+        for(int i = 0; i < expected.getMoveCount(); i++){
+            assertEquals(expected.getMove(i), actual.getMove(i));
+        }
+    }
+
+
+    // Returns numbers 0 to count - 1 in a random order
+    private static int[] shuffledSteps(int count, Random random){
+        int[] steps = new int[count];
+
+        for(int i = 0; i < count; i++){
+            int j = random.nextInt(i + 1);
+            steps[i] = steps[j];
+            steps[j] = i;
+        }
+
+        return steps;
+    }
+
+
+    // Finds the state of the game by looking for alignments over the whole grid
+    private static TicTacToe.GAME_STATE scanState(TicTacToe game){
+        int[][] grid = game.getGrid();
+        int[] directions = {0, 1, 1, 0, 1, 1, 1, -1};
+
+        for(int line = 0; line < game.getHeight(); line++){
+            for(int column = 0; column < game.getWidth(); column++){
+                int mark = grid[line][column];
+
+                for(int d = 0; d < directions.length && mark != 0; d += 2){
+                    int aligned = 0;
+                    int i = line;
+                    int j = column;
+
+                    while(aligned < game.getWinLength() && i >= 0 && i < game.getHeight() && j >= 0 && j < game.getWidth()
+                            && grid[i][j] == mark){
+                        aligned++;
+                        i += directions[d];
+                        j += directions[d + 1];
+                    }
+
+                    if(aligned == game.getWinLength()){
+                        return (mark == 1) ? TicTacToe.GAME_STATE.A_WON : TicTacToe.GAME_STATE.B_WON;
+                    }
+                }
+            }
+        }
+
+        return (game.getMoveCount() == game.getCellCount()) ? TicTacToe.GAME_STATE.TIE : TicTacToe.GAME_STATE.PLAYING;
+    }
+}
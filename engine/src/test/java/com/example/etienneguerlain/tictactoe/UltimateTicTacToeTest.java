@@ -0,0 +1,235 @@
+package com.example.etienneguerlain.tictactoe;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+public class UltimateTicTacToeTest {
+
+
+    private static final int GAMES = 2000;
+
+
+    // The legal moves are the empty cells of the board matching the last cell played, or of every open board
+    // when this board is closed. Any other cell is refused
+    @Test
+    public void legalMovesFollowTheRules(){
+        Random random = new Random(11);
+        UltimateTicTacToe game = new UltimateTicTacToe();
+        int[] moves = new int[UltimateTicTacToe.CELL_COUNT];
+        int sentToClosedBoard = 0;
+
+        for(int g = 0; g < GAMES; g++){
+            game.reset();
+
+            while(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                int[] expected = expectedLegalMoves(game);
+                int count = game.getLegalMoves(moves);
+                assertArrayEquals(expected, sorted(moves, count));
+
+                if(game.getMoveCount() > 0 && game.getForcedBoard() == UltimateTicTacToe.ANY_BOARD){
+                    sentToClosedBoard++;
+                }
+
+                for(int move = 0; move < UltimateTicTacToe.CELL_COUNT; move++){
+                    if(Arrays.binarySearch(expected, move) < 0){
+                        assertNotEquals(TicTacToe.PLAY_RESULT.OK, game.playCell(move / 9, move % 9));
+                    }
+                }
+
+                int move = expected[random.nextInt(expected.length)];
+                assertEquals(TicTacToe.PLAY_RESULT.OK, game.playCell(move / 9, move % 9));
+            }
+
+            assertEquals(0, game.getLegalMoves(moves));
+            assertEquals(0, game.getPlayableBoards());
+        }
+
+        assertTrue(sentToClosedBoard > 0);
+    }
+
+
+    // Taking back a move restores the whole position, including when the move won a board or the game
+    @Test
+    public void undoRestoresThePosition(){
+        Random random = new Random(13);
+        UltimateTicTacToe game = new UltimateTicTacToe();
+        int[] moves = new int[UltimateTicTacToe.CELL_COUNT];
+        int boardsWon = 0;
+        int gamesWon = 0;
+
+        for(int g = 0; g < GAMES / 4; g++){
+            game.reset();
+
+            while(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                String before = describe(game);
+                int closedBefore = game.getClosedBoards();
+
+                int move = moves[random.nextInt(game.getLegalMoves(moves))];
+                game.playMove(move);
+
+                if(closedBefore != game.getClosedBoards() && game.getBoardState(move / 9) != TicTacToe.GAME_STATE.TIE){
+                    boardsWon++;
+                }
+                if(game.getState() == TicTacToe.GAME_STATE.A_WON || game.getState() == TicTacToe.GAME_STATE.B_WON){
+                    gamesWon++;
+                }
+
+                String after = describe(game);
+                assertTrue(game.undo());
+                assertEquals(before, describe(game));
+
+                game.playMove(move);
+                assertEquals(after, describe(game));
+            }
+
+            // The whole game is taken back
+            while(game.undo()){
+                assertEquals(TicTacToe.GAME_STATE.PLAYING, game.getState());
+            }
+            assertEquals(describe(new UltimateTicTacToe()), describe(game));
+        }
+
+        assertTrue(boardsWon > 0);
+        assertTrue(gamesWon > 0);
+    }
+
+
+    // A copy has the same position and history, and is independent from the original
+    @Test
+    public void copyFromCopiesPositionAndHistory(){
+        Random random = new Random(17);
+        UltimateTicTacToe game = new UltimateTicTacToe();
+        UltimateTicTacToe copy = new UltimateTicTacToe();
+        int[] moves = new int[UltimateTicTacToe.CELL_COUNT];
+
+        for(int g = 0; g < 200; g++){
+            game.reset();
+            int length = random.nextInt(40);
+            while(game.getMoveCount() < length && game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                game.playMove(moves[random.nextInt(game.getLegalMoves(moves))]);
+            }
+
+            // The copy may hold a longer game beforehand
+            copy.reset();
+            copy.playRandomGame(random);
+            copy.copyFrom(game);
+            String position = describe(game);
+            assertEquals(position, describe(copy));
+
+            if(game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                copy.playRandomGame(random);
+                assertEquals(position, describe(game));
+            }
+
+            while(copy.getMoveCount() > game.getMoveCount()){
+                copy.undo();
+            }
+            assertEquals(position, describe(copy));
+
+            // Both take back the same moves
+            while(game.getMoveCount() > 0){
+                assertTrue(game.undo());
+                assertTrue(copy.undo());
+                assertEquals(describe(game), describe(copy));
+            }
+        }
+    }
+
+
+    // Random games only play legal moves: replaying their moves one by one gives the same game
+    @Test
+    public void randomGamesPlayLegalMoves(){
+        Random random = new Random(19);
+        UltimateTicTacToe game = new UltimateTicTacToe();
+        UltimateTicTacToe replay = new UltimateTicTacToe();
+        int[] moves = new int[UltimateTicTacToe.CELL_COUNT];
+
+        for(int g = 0; g < GAMES; g++){
+            game.reset();
+
+            // Half of the games start from a position reached by a few moves
+            int opening = random.nextBoolean() ? random.nextInt(20) : 0;
+            while(game.getMoveCount() < opening && game.getState() == TicTacToe.GAME_STATE.PLAYING){
+                game.playMove(moves[random.nextInt(game.getLegalMoves(moves))]);
+            }
+
+            TicTacToe.GAME_STATE state = game.playRandomGame(random);
+            assertNotEquals(TicTacToe.GAME_STATE.PLAYING, state);
+            assertEquals(state, game.getState());
+
+            replay.reset();
+            for(int i = 0; i < game.getMoveCount(); i++){
+                int move = game.getMove(i);
+                assertTrue(Arrays.binarySearch(sorted(moves, replay.getLegalMoves(moves)), move) >= 0);
+                assertEquals(TicTacToe.PLAY_RESULT.OK, replay.playCell(move / 9, move % 9));
+            }
+
+            assertEquals(describe(game), describe(replay));
+        }
+    }
+
+
+    // Legal moves computed from the cells and the board states, without the masks of the engine
+    private static int[] expectedLegalMoves(UltimateTicTacToe game){
+        int forced = UltimateTicTacToe.ANY_BOARD;
+
+        if(game.getMoveCount() > 0){
+            int target = game.getMove(game.getMoveCount() - 1) % 9;
+            if(game.getBoardState(target) == TicTacToe.GAME_STATE.PLAYING){
+                forced = target;
+            }
+        }
+
+        int[] moves = new int[UltimateTicTacToe.CELL_COUNT];
+        int count = 0;
+        for(int board = 0; board < UltimateTicTacToe.BOARD_COUNT; board++){
+            if((forced != UltimateTicTacToe.ANY_BOARD && board != forced)
+                    || game.getBoardState(board) != TicTacToe.GAME_STATE.PLAYING){
+                continue;
+            }
+            for(int cell = 0; cell < 9; cell++){
+                if(game.getCell(board, cell) == 0){
+                    moves[count++] = board * 9 + cell;
+                }
+            }
+        }
+
+        return Arrays.copyOf(moves, count);
+    }
+
+
+    private static int[] sorted(int[] moves, int count){
+        int[] copy = Arrays.copyOf(moves, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+
+    // Everything the getters tell about the game, as a string that can be compared
+    private static String describe(UltimateTicTacToe game){
+        StringBuilder description = new StringBuilder();
+
+        for(int board = 0; board < UltimateTicTacToe.BOARD_COUNT; board++){
+            for(int cell = 0; cell < 9; cell++){
+                description.append(game.getCell(board, cell));
+            }
+            description.append(' ').append(game.getBoardState(board)).append('\n');
+        }
+
+        description.append(game.getState()).append(' ').append(game.getCurrentPlayer())
+                .append(" forced ").append(game.getForcedBoard())
+                .append(" playable ").append(game.getPlayableBoards())
+                .append(" closed ").append(game.getClosedBoards())
+                .append(" moves");
+        for(int i = 0; i < game.getMoveCount(); i++){
+            description.append(' ').append(game.getMove(i));
+        }
+
+        return description.toString();
+    }
+}